@@ -2,6 +2,7 @@ package de.jplag;
 
 import static de.jplag.CommandLineArgument.*;
 
+import java.io.IOException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.List;
@@ -59,10 +60,28 @@ public final class CLI {
         try {
             CLI cli = new CLI();
             Namespace arguments = cli.parseArguments(args);
+            Integer daemonPort = DAEMON.getFrom(arguments);
+            if (daemonPort != null) {
+                new Daemon(cli, daemonPort, Daemon.DEFAULT_TOKEN_DIRECTORY).start();
+                return;
+            }
             JPlagOptions options = cli.buildOptionsFromArguments(arguments);
             JPlag program = new JPlag(options);
             logger.info("JPlag initialized");
-            JPlagResult result = program.run();
+            String archiveIndex = ARCHIVE_INDEX.getFrom(arguments);
+            boolean buildIndex = BUILD_INDEX.getFrom(arguments);
+            if (archiveIndex != null && buildIndex) {
+                program.buildArchiveIndex(archiveIndex).close();
+                return;
+            }
+            JPlagResult result;
+            if (archiveIndex == null) {
+                result = program.run();
+            } else {
+                try (ArchiveIndex index = program.loadArchiveIndex(archiveIndex)) {
+                    result = program.query(index);
+                }
+            }
             ReportObjectFactory reportObjectFactory = new ReportObjectFactory();
             reportObjectFactory.createAndSaveReport(result, arguments.getString(RESULT_FOLDER.flagWithoutDash()));
 
@@ -70,10 +89,17 @@ public final class CLI {
             logger.error(exception.getMessage(), exception);
             finalizeLogger();
             System.exit(1);
+        } catch (IOException exception) {
+            logger.error("Could not start the daemon: " + exception.getMessage(), exception);
+            finalizeLogger();
+            System.exit(1);
         }
     }
 
-    private static void finalizeLogger() {
+    /**
+     * Prints the errors that were collected by the logger.
+     */
+    static void finalizeLogger() {
         ILoggerFactory factory = LoggerFactory.getILoggerFactory();
         if (!(factory instanceof CollectedLoggerFactory collectedLoggerFactory))
             return;
@@ -106,6 +132,17 @@ public final class CLI {
         return null;
     }
 
+    /**
+     * Parses an array of argument strings without exiting on invalid arguments, which is needed for the jobs of the
+     * {@link Daemon}.
+     * @param arguments is the array to parse.
+     * @return the parsed arguments in a {@link Namespace} format.
+     * @throws ArgumentParserException if the arguments are invalid.
+     */
+    Namespace parseJobArguments(String[] arguments) throws ArgumentParserException {
+        return parser.parseArgs(arguments);
+    }
+
     /**
      * Builds a options instance from parsed arguments.
      * @param namespace encapsulates the parsed arguments in a {@link Namespace} format.
@@ -135,8 +172,14 @@ public final class CLI {
         options.setMinimumTokenMatch(MIN_TOKEN_MATCH.getFrom(namespace));
         options.setSimilarityThreshold(SIMILARITY_THRESHOLD.getFrom(namespace));
         options.setMaximumNumberOfComparisons(SHOWN_COMPARISONS.getFrom(namespace));
+        options.setRetainOnlyShownComparisons(true); // the report only contains the shown comparisons
+        options.setMetricsOnly(METRICS_ONLY.getFrom(namespace));
         ComparisonMode.fromName(COMPARISON_MODE.getFrom(namespace)).ifPresentOrElse(options::setComparisonMode,
                 () -> logger.warn("Unknown comparison mode, using default mode!"));
+        Optional.ofNullable((Integer) PARALLELISM.getFrom(namespace)).ifPresent(options::setParallelism);
+        options.setTokenCacheDirectory(TOKEN_CACHE.getFrom(namespace));
+        options.setOldTokenStoreDirectory(OLD_TOKEN_STORE.getFrom(namespace));
+        options.setResultCacheDirectory(RESULT_CACHE.getFrom(namespace));
 
         ClusteringOptions.Builder clusteringBuilder = new ClusteringOptions.Builder();
         Optional.ofNullable(!(Boolean) CLUSTER_DISABLE.getFrom(namespace)).ifPresent(clusteringBuilder::enabled);
@@ -50,8 +50,16 @@ public enum CommandLineArgument {
     MIN_TOKEN_MATCH("-t", Integer.class),
     SIMILARITY_THRESHOLD(new Builder("-m", Float.class).defaultsTo(DEFAULT_SIMILARITY_THRESHOLD).argumentGroup(ADVANCED_GROUP)),
     SHOWN_COMPARISONS(new Builder("-n", Integer.class).defaultsTo(DEFAULT_SHOWN_COMPARISONS)),
+    METRICS_ONLY(new Builder("--metrics-only", Boolean.class).argumentGroup(ADVANCED_GROUP)),
     RESULT_FOLDER(new Builder("-r", String.class).defaultsTo("result")),
     COMPARISON_MODE(new Builder("-c", String.class).defaultsTo(DEFAULT_COMPARISON_MODE.getName()).choices(ComparisonMode.allNames())),
+    PARALLELISM(new Builder("--parallelism", Integer.class).metaVar("threads").argumentGroup(ADVANCED_GROUP)),
+    TOKEN_CACHE(new Builder("--token-cache", String.class).metaVar("directory").argumentGroup(ADVANCED_GROUP)),
+    OLD_TOKEN_STORE(new Builder("--old-token-store", String.class).metaVar("directory").argumentGroup(ADVANCED_GROUP)),
+    RESULT_CACHE(new Builder("--result-cache", String.class).metaVar("directory").argumentGroup(ADVANCED_GROUP)),
+    ARCHIVE_INDEX(new Builder("--archive-index", String.class).metaVar("directory").argumentGroup(ADVANCED_GROUP)),
+    BUILD_INDEX(new Builder("--build-index", Boolean.class).argumentGroup(ADVANCED_GROUP)),
+    DAEMON(new Builder("--daemon", Integer.class).metaVar("port").argumentGroup(ADVANCED_GROUP)),
     CLUSTER_DISABLE(new Builder("--cluster-skip", Boolean.class).argumentGroup(CLUSTERING_GROUP_NAME).action(Arguments.storeTrue())),
     CLUSTER_ALGORITHM(
             new Builder("--cluster-alg", ClusteringAlgorithm.class).argumentGroup(CLUSTERING_GROUP_NAME)
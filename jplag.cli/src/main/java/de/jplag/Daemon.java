@@ -0,0 +1,326 @@
+package de.jplag;
+
+import static de.jplag.CommandLineArgument.ARCHIVE_INDEX;
+import static de.jplag.CommandLineArgument.BUILD_INDEX;
+import static de.jplag.CommandLineArgument.DAEMON;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.jplag.exceptions.ExitException;
+import de.jplag.options.JPlagOptions;
+import de.jplag.reporting.reportobject.ReportObjectFactory;
+
+/**
+ * Local HTTP server that runs JPlag jobs in a long-running JVM, which avoids the startup costs of the CLI for many
+ * small jobs: the languages stay loaded, the JIT stays warm, and loaded archive indices are kept for later jobs. Only
+ * connections from localhost are accepted.
+ * <p>
+ * Each request needs to send the random token of the daemon in the <code>X-JPlag-Token</code> header. The token is
+ * written to the file <code>daemon-&lt;port&gt;.token</code> in the token directory, which only the user can read, and
+ * deleted when the daemon stops. Requests with another <code>Host</code> than localhost or 127.0.0.1 with the port of
+ * the daemon, and requests with an <code>Origin</code> header are rejected with status 403. Thus, websites cannot send
+ * jobs from a browser, neither directly nor via DNS rebinding.
+ * </p>
+ * <p>
+ * A job is a POST request whose body contains the command line arguments, one per line. Relative paths are resolved
+ * against the working directory of the daemon, and the result folder argument is ignored. The endpoints are:
+ * </p>
+ * <ul>
+ * <li><code>/run</code> responds with the shown comparisons as tab-separated lines of the submission names and the
+ * similarity in percent.</li>
+ * <li><code>/report</code> responds with the report zip.</li>
+ * <li><code>/shutdown</code> stops the daemon.</li>
+ * </ul>
+ * <p>
+ * A job that builds an archive index responds with the number of indexed submissions. Invalid arguments are rejected
+ * with status 400, failed jobs with status 422. The jobs run one after another, each one with the parallelism of its
+ * arguments.
+ * </p>
+ */
+public final class Daemon {
+    /**
+     * Default directory of the token file.
+     */
+    public static final Path DEFAULT_TOKEN_DIRECTORY = Path.of(System.getProperty("user.home"), ".jplag");
+
+    private static final Logger logger = LoggerFactory.getLogger(Daemon.class);
+
+    private static final String TEXT_TYPE = "text/plain; charset=utf-8";
+    private static final String ZIP_TYPE = "application/zip";
+    private static final String TOKEN_HEADER = "X-JPlag-Token";
+    private static final int TOKEN_BYTES = 32;
+
+    private final CLI cli;
+    private final HttpServer server;
+    private final byte[] token;
+    private final Path tokenFile;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Map<IndexKey, ArchiveIndex> archiveIndices = new HashMap<>(); // only accessed by the job thread
+
+    /**
+     * Creates the daemon, which does not accept jobs until it is started, and writes its token file.
+     * @param cli parses the arguments of the jobs.
+     * @param port is the port on localhost, 0 selects any free port.
+     * @param tokenDirectory is the directory of the token file, which is created if it does not exist.
+     * @throws IOException if the port cannot be bound or the token file cannot be written.
+     */
+    public Daemon(CLI cli, int port, Path tokenDirectory) throws IOException {
+        this.cli = cli;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        token = HexFormat.of().formatHex(createRandomBytes()).getBytes(StandardCharsets.US_ASCII);
+        try {
+            tokenFile = writeTokenFile(tokenDirectory.resolve("daemon-" + getPort() + ".token"), token);
+        } catch (IOException exception) {
+            server.stop(0);
+            throw exception;
+        }
+        server.createContext("/run", exchange -> handleJob(exchange, false));
+        server.createContext("/report", exchange -> handleJob(exchange, true));
+        server.createContext("/shutdown", this::handleShutdown);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts accepting jobs.
+     */
+    public void start() {
+        server.start();
+        logger.info("JPlag daemon listening on http://localhost:{}, send the token of {} in the {} header", getPort(), tokenFile, TOKEN_HEADER);
+    }
+
+    /**
+     * Stops accepting jobs and closes the loaded archive indices.
+     */
+    public synchronized void stop() {
+        server.stop(0);
+        if (!executor.isShutdown()) {
+            executor.execute(this::closeArchiveIndices); // after the running job
+            executor.shutdown();
+            try {
+                Files.deleteIfExists(tokenFile);
+            } catch (IOException exception) {
+                logger.warn("Cannot delete the token file {}: {}", tokenFile, exception.getMessage());
+            }
+        }
+        logger.info("JPlag daemon stopped");
+    }
+
+    /**
+     * @return the port the daemon listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the file that contains the token the requests need to send.
+     */
+    public Path getTokenFile() {
+        return tokenFile;
+    }
+
+    private void handleJob(HttpExchange exchange, boolean withReport) throws IOException {
+        try (exchange) {
+            if (!isAuthorized(exchange)) {
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Post the arguments of the job, one per line\n");
+                return;
+            }
+            String[] arguments = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).lines().map(String::strip)
+                    .filter(it -> !it.isEmpty()).toArray(String[]::new);
+            try {
+                runJob(exchange, cli.parseJobArguments(arguments), withReport);
+            } catch (ArgumentParserException exception) {
+                respond(exchange, 400, exception.getMessage() + "\n");
+            } catch (ExitException exception) {
+                logger.error(exception.getMessage(), exception);
+                respond(exchange, 422, exception.getMessage() + "\n");
+            } catch (RuntimeException exception) {
+                logger.error("The job failed: " + exception.getMessage(), exception);
+                respond(exchange, 500, "The job failed: " + exception.getMessage() + "\n");
+            } finally {
+                CLI.finalizeLogger();
+            }
+        }
+    }
+
+    private void runJob(HttpExchange exchange, Namespace arguments, boolean withReport) throws ExitException, IOException {
+        if (DAEMON.getFrom(arguments) != null) {
+            respond(exchange, 400, "A job cannot start another daemon\n");
+            return;
+        }
+        JPlagOptions options = cli.buildOptionsFromArguments(arguments);
+        JPlag program = new JPlag(options);
+        String archiveIndex = ARCHIVE_INDEX.getFrom(arguments);
+        boolean buildIndex = BUILD_INDEX.getFrom(arguments);
+        if (archiveIndex != null && buildIndex) {
+            ArchiveIndex index = program.buildArchiveIndex(archiveIndex);
+            replaceArchiveIndex(new IndexKey(archiveIndex, options), index);
+            respond(exchange, 200, String.format("Indexed %d submissions%n", index.size()));
+            return;
+        }
+        JPlagResult result = archiveIndex == null ? program.run() : program.query(loadArchiveIndex(program, archiveIndex, options));
+        if (withReport) {
+            sendReport(exchange, result);
+        } else {
+            StringBuilder similarities = new StringBuilder();
+            for (JPlagComparison comparison : result.getComparisons(options.getMaximumNumberOfComparisons())) {
+                similarities.append(String.format(Locale.ROOT, "%s\t%s\t%.2f%n", comparison.getFirstSubmission().getName(),
+                        comparison.getSecondSubmission().getName(), comparison.similarity()));
+            }
+            respond(exchange, 200, similarities.toString());
+        }
+    }
+
+    /**
+     * Returns the loaded archive index for the options, or loads it if it was not loaded yet or built again since.
+     */
+    private ArchiveIndex loadArchiveIndex(JPlag program, String directory, JPlagOptions options) throws ExitException {
+        IndexKey key = new IndexKey(directory, options);
+        ArchiveIndex index = archiveIndices.get(key);
+        if (index == null || index.isOutdated()) {
+            index = program.loadArchiveIndex(directory);
+            replaceArchiveIndex(key, index);
+        }
+        return index;
+    }
+
+    private void replaceArchiveIndex(IndexKey key, ArchiveIndex index) {
+        ArchiveIndex replaced = archiveIndices.put(key, index);
+        if (replaced != null) {
+            replaced.close();
+        }
+    }
+
+    private void closeArchiveIndices() {
+        archiveIndices.values().forEach(ArchiveIndex::close);
+        archiveIndices.clear();
+    }
+
+    private static void sendReport(HttpExchange exchange, JPlagResult result) throws IOException {
+        Path directory = Files.createTempDirectory("jplag-report");
+        String reportPath = directory.resolve("report").toString();
+        Path zip = Path.of(reportPath + ".zip");
+        try {
+            new ReportObjectFactory().createAndSaveReport(result, reportPath);
+            if (!Files.isRegularFile(zip)) {
+                respond(exchange, 500, "Could not create the report\n");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", ZIP_TYPE);
+            exchange.sendResponseHeaders(200, Files.size(zip));
+            try (OutputStream body = exchange.getResponseBody()) {
+                Files.copy(zip, body);
+            }
+        } finally {
+            Files.deleteIfExists(zip);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private void handleShutdown(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!isAuthorized(exchange)) {
+                return;
+            }
+            respond(exchange, 200, "Stopping\n");
+        }
+        new Thread(this::stop).start(); // the server waits for the running exchange to finish
+    }
+
+    /**
+     * Checks that the request comes from a local client that knows the token, and rejects it otherwise.
+     * @return whether the request is authorized.
+     */
+    private boolean isAuthorized(HttpExchange exchange) throws IOException {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null || !Set.of("localhost:" + getPort(), "127.0.0.1:" + getPort()).contains(host.toLowerCase(Locale.ROOT))) {
+            respond(exchange, 403, "Only requests to localhost are accepted\n");
+            return false;
+        }
+        if (exchange.getRequestHeaders().containsKey("Origin")) {
+            respond(exchange, 403, "Requests from browsers are not accepted\n");
+            return false;
+        }
+        String requestToken = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+        if (requestToken == null || !MessageDigest.isEqual(token, requestToken.getBytes(StandardCharsets.US_ASCII))) {
+            respond(exchange, 403, "Send the token of " + tokenFile + " in the " + TOKEN_HEADER + " header\n");
+            return false;
+        }
+        return true;
+    }
+
+    private static byte[] createRandomBytes() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes the token to a new file that only the user can read, replacing the file of an earlier daemon on the same port.
+     */
+    private static Path writeTokenFile(Path file, byte[] token) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.deleteIfExists(file);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            File created = Files.createFile(file).toFile();
+            boolean restricted = created.setReadable(false, false) && created.setReadable(true, true) && created.setWritable(false, false)
+                    && created.setWritable(true, true);
+            if (!restricted) {
+                logger.warn("Cannot restrict the access to the token file {}", file);
+            }
+        }
+        Files.write(file, token);
+        return file;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", TEXT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    /**
+     * Identifies a loaded archive index by its directory and the options it depends on.
+     */
+    private record IndexKey(String directory, String language, int minimumTokenMatch, int minimumSharedFingerprints) {
+        IndexKey(String directory, JPlagOptions options) {
+            this(new File(directory).getAbsolutePath(), options.getLanguage().getIdentifier(), options.getMinimumTokenMatch(),
+                    options.getMinimumSharedFingerprints());
+        }
+    }
+}
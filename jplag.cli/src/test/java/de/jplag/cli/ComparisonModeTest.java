@@ -40,4 +40,41 @@ class ComparisonModeTest extends CommandLineInterfaceTest {
         assertEquals(mode, options.getComparisonMode());
     }
 
+    @Test
+    void testMinHashMode() {
+        ComparisonMode mode = ComparisonMode.MINHASH;
+        String argument = buildArgument(CommandLineArgument.COMPARISON_MODE, mode.getName());
+        buildOptionsFromCLI(argument, CURRENT_DIRECTORY);
+        assertEquals(mode, options.getComparisonMode());
+    }
+
+    @Test
+    void testWinnowingMode() {
+        ComparisonMode mode = ComparisonMode.WINNOWING;
+        String argument = buildArgument(CommandLineArgument.COMPARISON_MODE, mode.getName());
+        buildOptionsFromCLI(argument, CURRENT_DIRECTORY);
+        assertEquals(mode, options.getComparisonMode());
+    }
+
+    @Test
+    void testPipelinedMode() {
+        ComparisonMode mode = ComparisonMode.PIPELINED;
+        String argument = buildArgument(CommandLineArgument.COMPARISON_MODE, mode.getName());
+        buildOptionsFromCLI(argument, CURRENT_DIRECTORY);
+        assertEquals(mode, options.getComparisonMode());
+    }
+
+    @Test
+    void testDefaultParallelism() {
+        buildOptionsFromCLI(CURRENT_DIRECTORY);
+        assertEquals(JPlagOptions.DEFAULT_PARALLELISM, options.getParallelism());
+    }
+
+    @Test
+    void testParallelism() {
+        String argument = buildArgument(CommandLineArgument.PARALLELISM, "3");
+        buildOptionsFromCLI(argument, CURRENT_DIRECTORY);
+        assertEquals(3, options.getParallelism());
+    }
+
 }
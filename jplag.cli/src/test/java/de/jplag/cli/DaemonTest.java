@@ -0,0 +1,166 @@
+package de.jplag.cli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jplag.CLI;
+import de.jplag.Daemon;
+
+/**
+ * Tests the jobs of the {@link Daemon}, which are run like the CLI but in the same JVM.
+ */
+public class DaemonTest {
+    private static final String SOURCE = """
+            public class Main {
+                public static void main(String[] args) {
+                    int sum = 0;
+                    for (int i = 0; i < args.length; i++) {
+                        if (args[i].isEmpty()) {
+                            continue;
+                        }
+                        sum += Integer.parseInt(args[i]);
+                    }
+                    while (sum > 100) {
+                        sum = sum / 2;
+                    }
+                    System.out.println(sum);
+                }
+            }
+            """;
+
+    @TempDir
+    Path submissions;
+
+    @TempDir
+    Path tokenDirectory;
+
+    private Daemon daemon;
+    private HttpClient client;
+    private String token;
+
+    @BeforeEach
+    public void startDaemon() throws IOException {
+        for (String name : List.of("A", "B")) {
+            Files.writeString(Files.createDirectory(submissions.resolve(name)).resolve("Main.java"), SOURCE);
+        }
+        daemon = new Daemon(new CLI(), 0, tokenDirectory);
+        daemon.start();
+        client = HttpClient.newHttpClient();
+        token = Files.readString(daemon.getTokenFile());
+    }
+
+    @AfterEach
+    public void stopDaemon() {
+        daemon.stop();
+        assertFalse(Files.exists(daemon.getTokenFile()));
+    }
+
+    @Test
+    public void testRun() throws IOException, InterruptedException {
+        for (int job = 0; job < 2; job++) { // the second job runs in the warm daemon
+            HttpResponse<String> response = post("/run", "-l\njava\n" + submissions);
+            assertEquals(200, response.statusCode());
+            List<String> lines = response.body().lines().toList();
+            assertEquals(1, lines.size());
+            assertTrue(lines.get(0).endsWith("\t100.00"), lines.get(0));
+        }
+    }
+
+    @Test
+    public void testReport() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request("/report", submissions.toString()), BodyHandlers.ofByteArray());
+        assertEquals(200, response.statusCode());
+        assertEquals('P', response.body()[0]); // zip files start with "PK"
+        assertEquals('K', response.body()[1]);
+    }
+
+    @Test
+    public void testInvalidArguments() throws IOException, InterruptedException {
+        assertEquals(400, post("/run", "--unknown-argument\n" + submissions).statusCode());
+        assertEquals(400, post("/run", "--daemon=0\n" + submissions).statusCode());
+    }
+
+    @Test
+    public void testFailedJob() throws IOException, InterruptedException {
+        assertEquals(422, post("/run", submissions.resolve("missing").toString()).statusCode());
+    }
+
+    @Test
+    public void testOnlyPost() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + daemon.getPort() + "/run")).header("X-JPlag-Token", token).GET()
+                .build();
+        assertEquals(405, client.send(request, BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    public void testTokenFileIsPrivate() throws IOException {
+        if (Files.getFileStore(tokenDirectory).supportsFileAttributeView("posix")) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(daemon.getTokenFile());
+            assertEquals(Set.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE), permissions);
+        }
+    }
+
+    @Test
+    public void testUnauthorizedRequests() throws IOException, InterruptedException {
+        URI uri = URI.create("http://127.0.0.1:" + daemon.getPort() + "/shutdown");
+        HttpRequest withoutToken = HttpRequest.newBuilder(uri).POST(BodyPublishers.noBody()).build();
+        assertEquals(403, client.send(withoutToken, BodyHandlers.ofString()).statusCode());
+        HttpRequest wrongToken = HttpRequest.newBuilder(uri).header("X-JPlag-Token", "0" + token).POST(BodyPublishers.noBody()).build();
+        assertEquals(403, client.send(wrongToken, BodyHandlers.ofString()).statusCode());
+        HttpRequest withOrigin = HttpRequest.newBuilder(uri).header("X-JPlag-Token", token).header("Origin", "http://example.org")
+                .POST(BodyPublishers.noBody()).build();
+        assertEquals(403, client.send(withOrigin, BodyHandlers.ofString()).statusCode());
+        assertTrue(sendWithHost("example.org:" + daemon.getPort()).startsWith("HTTP/1.1 403"));
+
+        assertEquals(200, post("/run", "-l\njava\n" + submissions).statusCode()); // the daemon is still running
+    }
+
+    /**
+     * Sends a shutdown request with another host header, which the HTTP client does not allow.
+     * @return the response.
+     */
+    private String sendWithHost(String host) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            OutputStream output = socket.getOutputStream();
+            output.write(String
+                    .format("POST /shutdown HTTP/1.1\r\nHost: %s\r\nX-JPlag-Token: %s\r\nContent-Length: 0\r\nConnection: close\r\n\r\n", host, token)
+                    .getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+            InputStream input = socket.getInputStream();
+            return new String(input.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    private HttpResponse<String> post(String endpoint, String arguments) throws IOException, InterruptedException {
+        return client.send(request(endpoint, arguments), BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String endpoint, String arguments) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + daemon.getPort() + endpoint)).header("X-JPlag-Token", token)
+                .POST(BodyPublishers.ofString(arguments)).build();
+    }
+}
@@ -2,6 +2,8 @@ package de.jplag.cli;
 
 import static com.github.stefanbirkner.systemlambda.SystemLambda.catchSystemExit;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 
@@ -14,6 +16,7 @@ public class StoredMatchesTest extends CommandLineInterfaceTest {
     public void testDefault() {
         buildOptionsFromCLI(CURRENT_DIRECTORY);
         assertEquals(JPlagOptions.DEFAULT_SHOWN_COMPARISONS, options.getMaximumNumberOfComparisons());
+        assertTrue(options.isRetainOnlyShownComparisons());
     }
 
     @Test
@@ -39,6 +42,14 @@ public class StoredMatchesTest extends CommandLineInterfaceTest {
         assertEquals(-1, options.getMaximumNumberOfComparisons());
     }
 
+    @Test
+    public void testMetricsOnly() {
+        buildOptionsFromCLI(CURRENT_DIRECTORY);
+        assertFalse(options.isMetricsOnly());
+        buildOptionsFromCLI(CommandLineArgument.METRICS_ONLY.flag(), CURRENT_DIRECTORY);
+        assertTrue(options.isMetricsOnly());
+    }
+
     @Test
     public void testInvalidThreshold() throws Exception {
         String argument = buildArgument(CommandLineArgument.SHOWN_COMPARISONS, "Not an integer...");
@@ -1,5 +1,9 @@
 package de.jplag;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,6 +13,7 @@ import org.slf4j.LoggerFactory;
  */
 public abstract class AbstractParser {
     protected int errors = 0;
+    private final Map<String, Integer> errorsPerFile = new LinkedHashMap<>();
     public final Logger logger;
 
     protected AbstractParser() {
@@ -21,4 +26,31 @@ public abstract class AbstractParser {
     public boolean hasErrors() {
         return errors != 0;
     }
+
+    /**
+     * Resets the errors, should be called at the start of each parse.
+     */
+    protected void resetErrors() {
+        errors = 0;
+        errorsPerFile.clear();
+    }
+
+    /**
+     * Counts an error that was found in a file.
+     * @param file is the name of the file.
+     */
+    protected void reportError(String file) {
+        errors++;
+        errorsPerFile.merge(file, 1, Integer::sum);
+    }
+
+    /**
+     * Creates the result of the last parse call from its tokens and the errors reported since the last reset.
+     * @param tokens are the parsed tokens.
+     * @param startTime is the {@link System#nanoTime()} when the parse started.
+     * @return the parse result.
+     */
+    public ParseResult createParseResult(TokenList tokens, long startTime) {
+        return new ParseResult(tokens, errors, Map.copyOf(errorsPerFile), Duration.ofNanos(System.nanoTime() - startTime));
+    }
 }
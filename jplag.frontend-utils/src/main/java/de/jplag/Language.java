@@ -1,6 +1,8 @@
 package de.jplag;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.Map;
 
 /**
  * Common interface for all languages. Each language-front end must provide a concrete language implementation.
@@ -40,6 +42,39 @@ public interface Language {
      */
     boolean hasErrors();
 
+    /**
+     * Parses a set files in a directory. In contrast to {@link #parse}, the errors are part of the result. The default
+     * implementation adapts {@link #parse} and {@link #hasErrors()}, thus concurrent calls are serialized and the errors
+     * cannot be attributed to files.
+     * @param directory is the directory where the files are located.
+     * @param files are the names of the files to parse.
+     * @return the parsed JPlag tokens, the errors and the duration.
+     * @see #supportsConcurrentParsing()
+     */
+    default ParseResult parseFiles(File directory, String[] files) {
+        synchronized (this) {
+            long startTime = System.nanoTime();
+            TokenList tokens = parse(directory, files);
+            return new ParseResult(tokens, hasErrors() ? 1 : 0, Map.of(), Duration.ofNanos(System.nanoTime() - startTime));
+        }
+    }
+
+    /**
+     * Whether {@link #parseFiles} can be called concurrently on the same instance without blocking. Otherwise, concurrent
+     * parsing requires separate instances.
+     */
+    default boolean supportsConcurrentParsing() {
+        return false;
+    }
+
+    /**
+     * Whether the token types only depend on the parsed code, thus tokens of different language instances and runs can be
+     * compared. Languages that assign their token types while parsing need to return false, their tokens cannot be cached.
+     */
+    default boolean hasFixedTokenTypes() {
+        return true;
+    }
+
     /**
      * Determines whether a fixed-width font should be used to display that language.
      */
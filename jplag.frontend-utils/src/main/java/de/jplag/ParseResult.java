@@ -0,0 +1,23 @@
+package de.jplag;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Result of parsing the files of a submission. In contrast to {@link Language#hasErrors()}, the errors are part of the
+ * result, thus it does not depend on the state of the language.
+ * @param tokens are the parsed tokens.
+ * @param errors is the number of errors found while parsing.
+ * @param errorsPerFile maps the files to their number of errors, as far as the language can attribute the errors to
+ * files. Files without errors are omitted.
+ * @param duration is the time the parsing took.
+ */
+public record ParseResult(TokenList tokens, int errors, Map<String, Integer> errorsPerFile, Duration duration) {
+
+    /**
+     * @return whether errors were found while parsing.
+     */
+    public boolean hasErrors() {
+        return errors > 0;
+    }
+}
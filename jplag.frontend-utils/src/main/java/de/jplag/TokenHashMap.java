@@ -1,60 +1,92 @@
 package de.jplag;
 
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 /**
- * A {@link HashMap} that maps Integer keys to multiple Integer values. Note that all keys with identical
+ * A primitive multimap that maps long keys to multiple token positions. Note that all keys with identical
  * <code>(key % prime)</code> are mapped to the same values. Specifically, <code>prime</code> is the next prime number
- * that is larger or equal to the specified size (see {@link TokenHashMap#TokenHashMap(int)}).
+ * that is larger or equal to the specified size (see {@link TokenHashMap#TokenHashMap(long[], int)}).
+ * <p>
+ * The map is built once and is immutable afterwards. All positions are stored in a single array grouped by their bucket
+ * (compressed sparse row layout), where an offset array denotes where each bucket starts. Within a bucket, the
+ * positions are stored in ascending order. Lookups thus neither box values nor allocate memory. Additionally, the map
+ * retains the hash of each position. As it is never modified after its creation, it can be shared between threads.
+ * </p>
  */
 public class TokenHashMap {
     private static final int CERTAINTY = 100;
-    private final Map<Integer, List<Integer>> mappedEntries;
     private final int primeNumber;
+    private final int[] offsets; // bucket b is stored in positions[offsets[b]] to positions[offsets[b + 1] - 1]
+    private final int[] positions;
+    private final long[] hashes;
 
     /**
-     * Creates the {@link HashMap}.
-     * @param size specifies the initial size and the key mapping (see {@link TokenHashMap}).
+     * Creates the map for the hashes of a token sequence, where the position of each hash is stored for its key.
+     * @param hashes contains the hash for each position. Positions with a negative hash are not stored.
+     * @param size specifies the number of buckets and the key mapping (see {@link TokenHashMap}).
      */
-    public TokenHashMap(int size) {
-        mappedEntries = new HashMap<>(size);
+    public TokenHashMap(long[] hashes, int size) {
+        this.hashes = hashes;
         primeNumber = nextPrimeNumber(size);
+        offsets = new int[primeNumber + 1];
+        for (long hash : hashes) {
+            if (hash >= 0) {
+                offsets[bucketOf(hash) + 1]++;
+            }
+        }
+        for (int bucket = 0; bucket < primeNumber; bucket++) {
+            offsets[bucket + 1] += offsets[bucket];
+        }
+        positions = new int[offsets[primeNumber]];
+        int[] nextFreeIndex = new int[primeNumber];
+        System.arraycopy(offsets, 0, nextFreeIndex, 0, primeNumber);
+        for (int position = 0; position < hashes.length; position++) {
+            if (hashes[position] >= 0) {
+                positions[nextFreeIndex[bucketOf(hashes[position])]++] = position;
+            }
+        }
     }
 
     /**
-     * Returns all stored numbers for a key. Note that all keys with identical <code>(key % prime)</code> are mapped to the
-     * same values (see {@link TokenHashMap}).
+     * Returns the index of the first position stored for a key. The positions of a key can be iterated from this index
+     * (inclusive) to {@link #end(long)} (exclusive) via {@link #positionAt(int)}. Note that all keys with identical
+     * <code>(key % prime)</code> are mapped to the same positions (see {@link TokenHashMap}).
      * @param key is the specific key.
-     * @return the stored numbers or an empty list if nothing is stored.
+     * @return the start index.
      */
-    public final List<Integer> get(int key) {
-        int actualKey = key % primeNumber;
-        if (mappedEntries.containsKey(actualKey)) {
-            return new ArrayList<>(mappedEntries.get(actualKey));
-        }
-        return Collections.emptyList();
+    public final int start(long key) {
+        return offsets[bucketOf(key)];
     }
 
     /**
-     * Stores a number for a key, does not replace the previous stored numbers for that key. Note that all keys with
-     * identical <code>(key % prime)</code> are mapped to the same values (see {@link TokenHashMap}).
+     * Returns the index after the last position stored for a key (see {@link #start(long)}).
      * @param key is the specific key.
-     * @param value is the number to store.
+     * @return the end index, which is equal to the start index if nothing is stored.
      */
-    public final void put(int key, int value) {
-        int actualKey = key % primeNumber;
-        if (mappedEntries.containsKey(actualKey)) {
-            mappedEntries.get(actualKey).add(value);
-        } else {
-            List<Integer> entries = new ArrayList<>();
-            entries.add(value);
-            mappedEntries.put(actualKey, entries);
-        }
+    public final int end(long key) {
+        return offsets[bucketOf(key) + 1];
+    }
+
+    /**
+     * Grants access to a stored position.
+     * @param index is an index between {@link #start(long)} and {@link #end(long)} of a key.
+     * @return the stored position.
+     */
+    public final int positionAt(int index) {
+        return positions[index];
+    }
+
+    /**
+     * Returns the hash of a position that was used to create this map.
+     * @param position is the token position.
+     * @return the hash, or a negative value if the position has no hash.
+     */
+    public final long getHash(int position) {
+        return position < hashes.length ? hashes[position] : -1;
+    }
+
+    private int bucketOf(long key) {
+        return Math.floorMod(key, primeNumber);
     }
 
     /**
@@ -5,12 +5,13 @@ import java.util.Collection;
 import java.util.List;
 
 /**
- * List of tokens. Allows random access to individual tokens. Contains a hash map for token hashes.
+ * List of tokens. Allows random access to individual tokens. For the comparison algorithm, the token types are
+ * additionally provided as a primitive array. Subclasses can keep the tokens in another storage, they need to override
+ * all accessors.
  */
 public class TokenList {
     private final List<Token> tokens;
-    TokenHashMap tokenHashes = null;
-    int hashLength = -1;
+    private int[] tokenTypes;
 
     /**
      * Creates an empty token list.
@@ -22,7 +23,7 @@ public class TokenList {
     /**
      * @return the number of tokens in the list.
      */
-    public final int size() {
+    public int size() {
         return tokens.size();
     }
 
@@ -30,7 +31,7 @@ public class TokenList {
      * Adds an token to the list.
      * @param token is the token to add.
      */
-    public final void addToken(Token token) {
+    public void addToken(Token token) {
         if (tokens.size() > 0) {
             Token lastToken = tokens.get(tokens.size() - 1);
             if (lastToken.getFile().equals(token.getFile())) {
@@ -41,6 +42,7 @@ public class TokenList {
             }
         }
         tokens.add(token);
+        tokenTypes = null; // invalidate the frozen types
     }
 
     /**
@@ -64,13 +66,29 @@ public class TokenList {
         return tokens.get(index);
     }
 
+    /**
+     * Returns the types of all tokens as one contiguous array, which allows sequential access without touching the
+     * individual token objects. The array is created on the first call and then reused until another token is added, thus
+     * it must not be modified by the caller.
+     * @return the token types, where the type at index i belongs to the token at index i.
+     */
+    public int[] getTokenTypes() {
+        if (tokenTypes == null) {
+            tokenTypes = new int[tokens.size()];
+            for (int index = 0; index < tokenTypes.length; index++) {
+                tokenTypes[index] = tokens.get(index).getType();
+            }
+        }
+        return tokenTypes;
+    }
+
     @Override
     public final String toString() {
         try {
-            List<String> tokenStrings = tokens.stream().map(Token::toString).toList();
+            List<String> tokenStrings = allTokens().stream().map(Token::toString).toList();
             return String.join(System.lineSeparator(), tokenStrings);
         } catch (OutOfMemoryError exception) {
-            return "Token list to large for output: " + tokens.size() + " Tokens";
+            return "Token list to large for output: " + size() + " Tokens";
         }
     }
 }
@@ -4,6 +4,7 @@ import java.io.File;
 
 import org.kohsuke.MetaInfServices;
 
+import de.jplag.ParseResult;
 import de.jplag.TokenList;
 
 @MetaInfServices(de.jplag.Language.class)
@@ -45,4 +46,17 @@ public class Language implements de.jplag.Language {
     public boolean hasErrors() {
         return this.scanner.hasErrors();
     }
+
+    @Override
+    public ParseResult parseFiles(File directory, String[] files) {
+        long startTime = System.nanoTime();
+        Scanner scanner = new Scanner(); // a new instance per call, as it holds the state of the current parse
+        TokenList tokens = scanner.scan(directory, files);
+        return scanner.createParseResult(tokens, startTime);
+    }
+
+    @Override
+    public boolean supportsConcurrentParsing() {
+        return true;
+    }
 }
@@ -19,12 +19,12 @@ public class Scanner extends AbstractParser {
 
     public TokenList scan(File directory, String[] files) {
         tokens = new TokenList();
-        errors = 0;
+        resetErrors();
         for (String currentFile : files) {
             this.currentFile = currentFile;
             logger.trace("Scanning file {}", currentFile);
             if (!CPPScanner.scanFile(directory, currentFile, this)) {
-                errors++;
+                reportError(currentFile);
             }
             tokens.addToken(new CPPToken(CPPTokenConstants.FILE_END, currentFile));
         }
@@ -40,10 +40,10 @@ public class CSharpParserAdapter extends AbstractParser {
      */
     public TokenList parse(File directory, List<String> fileNames) {
         tokens = new TokenList();
-        errors = 0;
+        resetErrors();
         for (String fileName : fileNames) {
             if (!parseFile(directory, fileName)) {
-                errors++;
+                reportError(fileName);
             }
             tokens.addToken(new CSharpToken(CSharpTokenConstants.FILE_END, fileName, -1, -1, -1));
         }
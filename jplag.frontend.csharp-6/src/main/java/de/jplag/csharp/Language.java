@@ -5,6 +5,7 @@ import java.util.Arrays;
 
 import org.kohsuke.MetaInfServices;
 
+import de.jplag.ParseResult;
 import de.jplag.TokenList;
 
 /**
@@ -53,4 +54,17 @@ public class Language implements de.jplag.Language {
     public boolean hasErrors() {
         return parser.hasErrors();
     }
+
+    @Override
+    public ParseResult parseFiles(File directory, String[] files) {
+        long startTime = System.nanoTime();
+        CSharpParserAdapter parser = new CSharpParserAdapter(); // a new instance per call, as it holds the state of the current parse
+        TokenList tokens = parser.parse(directory, Arrays.asList(files));
+        return parser.createParseResult(tokens, startTime);
+    }
+
+    @Override
+    public boolean supportsConcurrentParsing() {
+        return true;
+    }
 }
@@ -9,7 +9,8 @@ import org.eclipse.emf.ecore.EClass;
 import de.jplag.TokenConstants;
 
 /**
- * Utility class for the dynamic creation of token constants. Replaces a handcrafted token set.
+ * Utility class for the dynamic creation of token constants. Replaces a handcrafted token set. The token set is shared
+ * by all parsers, which may run concurrently.
  * @author Timur Saglam
  */
 public class DynamicMetamodelTokenConstants implements TokenConstants {
@@ -25,7 +26,7 @@ public class DynamicMetamodelTokenConstants implements TokenConstants {
         // private constructor for non-instantiability.
     }
 
-    public static int getTokenType(EClass eClass) {
+    public static synchronized int getTokenType(EClass eClass) {
         if (eClassToTokenType.containsKey(eClass)) {
             return eClassToTokenType.get(eClass);
         }
@@ -35,7 +36,7 @@ public class DynamicMetamodelTokenConstants implements TokenConstants {
         return tokenType;
     }
 
-    public static String getTokenString(int tokenType) {
+    public static synchronized String getTokenString(int tokenType) {
         if (tokenTypeToEClass.containsKey(tokenType)) {
             return tokenTypeToEClass.get(tokenType).getName();
         }
@@ -46,14 +47,14 @@ public class DynamicMetamodelTokenConstants implements TokenConstants {
      * Returns the current size of the dynamic token set.
      * @return the number of known tokens.
      */
-    public static int getNumberOfTokens() {
+    public static synchronized int getNumberOfTokens() {
         return eClassToTokenType.size();
     }
 
     /**
      * @return a read only view on the collection of token strings.
      */
-    public static Collection<String> getTokenStrings() {
+    public static synchronized Collection<String> getTokenStrings() {
         return eClassToTokenType.keySet().stream().map(EClass::getName).toList();
     }
 
@@ -17,7 +17,7 @@ public class Language extends de.jplag.emf.Language {
     private static final int DEFAULT_MIN_TOKEN_MATCH = 10;
 
     public Language() {
-        super(new DynamicEcoreParser());
+        super(DynamicEcoreParser::new);
     }
 
     @Override
@@ -34,4 +34,9 @@ public class Language extends de.jplag.emf.Language {
     public int minimumTokenMatch() {
         return DEFAULT_MIN_TOKEN_MATCH;
     }
+
+    @Override
+    public boolean hasFixedTokenTypes() {
+        return false; // the token types are created while parsing
+    }
 }
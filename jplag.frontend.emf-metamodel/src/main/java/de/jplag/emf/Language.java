@@ -2,10 +2,12 @@ package de.jplag.emf;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.function.Supplier;
 
 import org.eclipse.emf.ecore.EcorePackage;
 import org.kohsuke.MetaInfServices;
 
+import de.jplag.ParseResult;
 import de.jplag.TokenList;
 import de.jplag.emf.parser.EcoreParser;
 
@@ -23,13 +25,19 @@ public class Language implements de.jplag.Language {
     private static final int DEFAULT_MIN_TOKEN_MATCH = 6;
 
     protected final EcoreParser parser;
+    private final Supplier<EcoreParser> parserFactory;
 
     public Language() {
-        this(new EcoreParser());
+        this(EcoreParser::new);
     }
 
-    protected Language(EcoreParser parser) {
-        this.parser = parser;
+    /**
+     * Creates the language with a specific parser.
+     * @param parserFactory creates the parsers, as each concurrent parse requires its own parser.
+     */
+    protected Language(Supplier<EcoreParser> parserFactory) {
+        this.parserFactory = parserFactory;
+        this.parser = parserFactory.get();
     }
 
     @Override
@@ -62,6 +70,19 @@ public class Language implements de.jplag.Language {
         return parser.hasErrors();
     }
 
+    @Override
+    public ParseResult parseFiles(File directory, String[] files) {
+        long startTime = System.nanoTime();
+        EcoreParser parser = parserFactory.get(); // a new instance per call, as it holds the state of the current parse
+        TokenList tokens = parser.parse(directory, Arrays.asList(files));
+        return parser.createParseResult(tokens, startTime);
+    }
+
+    @Override
+    public boolean supportsConcurrentParsing() {
+        return true;
+    }
+
     @Override
     public boolean useViewFiles() {
         return true;
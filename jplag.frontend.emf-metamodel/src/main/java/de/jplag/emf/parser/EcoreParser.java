@@ -38,7 +38,7 @@ public class EcoreParser extends AbstractParser {
      * @return the list of parsed tokens.
      */
     public TokenList parse(File directory, List<String> fileNames) {
-        errors = 0;
+        resetErrors();
         tokens = new TokenList();
         for (String fileName : fileNames) {
             currentFile = fileName;
@@ -56,7 +56,7 @@ public class EcoreParser extends AbstractParser {
         treeView = new MetamodelTreeView(filePath);
         List<EObject> model = EMFUtil.loadModel(filePath);
         if (model == null) {
-            errors++;
+            reportError(currentFile);
         } else {
             for (EObject root : model) {
                 visitor = createMetamodelVisitor();
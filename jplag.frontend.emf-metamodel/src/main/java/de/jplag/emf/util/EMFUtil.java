@@ -40,11 +40,13 @@ public final class EMFUtil {
     }
 
     /**
-     * Register the Ecore file extension in the EMF registry.
+     * Register the Ecore file extension in the EMF registry, unless it is already registered.
      */
     public static void registerEcoreExtension() {
         EcorePackage.eINSTANCE.eClass();
-        registerModelExtension(EcorePackage.eNAME);
+        if (!Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap().containsKey(EcorePackage.eNAME)) {
+            registerModelExtension(EcorePackage.eNAME); // only once, as concurrent parsers read the registry
+        }
     }
 
     /**
@@ -21,9 +21,10 @@ public class GoParserAdapter extends AbstractParser {
 
     public TokenList parse(File directory, String[] fileNames) {
         tokens = new TokenList();
+        resetErrors();
         for (String file : fileNames) {
             if (!parseFile(directory, file)) {
-                errors++;
+                reportError(file);
             }
         }
         return tokens;
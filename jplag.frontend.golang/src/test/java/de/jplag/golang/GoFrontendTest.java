@@ -1,6 +1,8 @@
 package de.jplag.golang;
 
 import static de.jplag.golang.GoTokenTestUtils.getDummyToken;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.File;
@@ -9,6 +11,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.OptionalInt;
 import java.util.stream.Collectors;
@@ -19,6 +22,7 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.jplag.ParseResult;
 import de.jplag.Token;
 import de.jplag.TokenConstants;
 import de.jplag.TokenList;
@@ -69,6 +73,20 @@ class GoFrontendTest {
         }
     }
 
+    /**
+     * Confirms that the errors are attributed to their files and do not affect later parses.
+     */
+    @Test
+    void testParseErrors() {
+        ParseResult erroneous = language.parseFiles(testFileLocation, new String[] {COMPLETE_TEST_FILE, "Missing.go"});
+        assertEquals(1, erroneous.errors());
+        assertEquals(Map.of("Missing.go", 1), erroneous.errorsPerFile());
+
+        ParseResult valid = language.parseFiles(testFileLocation, new String[] {COMPLETE_TEST_FILE});
+        assertFalse(valid.hasErrors());
+        assertEquals(erroneous.tokens().size(), valid.tokens().size());
+    }
+
     /**
      * Confirms that every type of GoToken has a Sting representation associated to it.
      */
@@ -10,8 +10,6 @@ import java.util.List;
 import javax.tools.*;
 import javax.tools.JavaCompiler.CompilationTask;
 
-import org.slf4j.Logger;
-
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.LineMap;
 import com.sun.source.util.JavacTask;
@@ -24,7 +22,7 @@ public class JavacAdapter {
 
     private static final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
 
-    public int parseFiles(File directory, Iterable<File> pathedFiles, final Parser parser) {
+    public void parseFiles(File directory, Iterable<File> pathedFiles, final Parser parser) {
         var listener = new DiagnosticCollector<>();
 
         try (final StandardJavaFileManager fileManager = javac.getStandardFileManager(listener, null, StandardCharsets.UTF_8)) {
@@ -37,7 +35,7 @@ public class JavacAdapter {
             final Trees trees = Trees.instance(task);
             final SourcePositions positions = trees.getSourcePositions();
             for (final CompilationUnitTree ast : executeCompilationTask(task)) {
-                final String filename = fileNameOf(directory, ast);
+                final String filename = fileNameOf(directory, ast.getSourceFile());
                 final LineMap map = ast.getLineMap();
                 ast.accept(new TokenGeneratingTreeScanner(filename, parser, map, positions, ast), null);
                 parser.add(TokenConstants.FILE_END, filename, 1, -1, -1);
@@ -45,7 +43,7 @@ public class JavacAdapter {
         } catch (IOException e) {
             parser.logger.error(e.getMessage(), e);
         }
-        return processErrors(parser.logger, listener);
+        processErrors(directory, parser, listener);
     }
 
     private Iterable<? extends CompilationUnitTree> executeCompilationTask(final CompilationTask task) {
@@ -58,23 +56,25 @@ public class JavacAdapter {
         return abstractSyntaxTrees;
     }
 
-    private String fileNameOf(File directory, final CompilationUnitTree ast) {
+    private String fileNameOf(File directory, final FileObject sourceFile) {
         if (directory == null)
-            return ast.getSourceFile().getName();
+            return sourceFile.getName();
         else {
-            return Paths.get(directory.toURI()).relativize(Paths.get(ast.getSourceFile().toUri())).toString();
+            return Paths.get(directory.toURI()).relativize(Paths.get(sourceFile.toUri())).toString();
         }
     }
 
-    private int processErrors(Logger logger, DiagnosticCollector<Object> listener) {
-        int errors = 0;
+    private void processErrors(File directory, Parser parser, DiagnosticCollector<Object> listener) {
         for (Diagnostic<?> diagnosticItem : listener.getDiagnostics()) {
             if (diagnosticItem.getKind() == javax.tools.Diagnostic.Kind.ERROR) {
-                logger.error("{}", diagnosticItem);
-                errors++;
+                parser.logger.error("{}", diagnosticItem);
+                if (diagnosticItem.getSource()instanceof FileObject sourceFile) {
+                    parser.increaseErrors(fileNameOf(directory, sourceFile));
+                } else {
+                    parser.increaseErrors();
+                }
             }
         }
-        return errors;
     }
 
 }
@@ -4,6 +4,7 @@ import java.io.File;
 
 import org.kohsuke.MetaInfServices;
 
+import de.jplag.ParseResult;
 import de.jplag.TokenList;
 
 /**
@@ -49,4 +50,17 @@ public class Language implements de.jplag.Language {
         return this.parser.hasErrors();
     }
 
+    @Override
+    public ParseResult parseFiles(File directory, String[] files) {
+        long startTime = System.nanoTime();
+        Parser parser = new Parser(); // a new instance per call, as it holds the state of the current parse
+        TokenList tokens = parser.parse(directory, files);
+        return parser.createParseResult(tokens, startTime);
+    }
+
+    @Override
+    public boolean supportsConcurrentParsing() {
+        return true;
+    }
+
 }
@@ -18,9 +18,9 @@ public class Parser extends AbstractParser {
 
     public TokenList parse(File directory, String[] files) {
         tokens = new TokenList();
-        errors = 0;
+        resetErrors();
         var pathedFiles = Arrays.stream(files).map(it -> new File(directory, it)).toList();
-        errors += new JavacAdapter().parseFiles(directory, pathedFiles, this);
+        new JavacAdapter().parseFiles(directory, pathedFiles, this);
         return tokens;
     }
 
@@ -28,6 +28,17 @@ public class Parser extends AbstractParser {
         tokens.addToken(new JavaToken(type, filename, (int) line, (int) column, (int) length));
     }
 
+    /**
+     * Counts an error that was found in a file.
+     * @param filename is the name of the file relative to the parsed directory.
+     */
+    public void increaseErrors(String filename) {
+        reportError(filename);
+    }
+
+    /**
+     * Counts an error that cannot be attributed to a file.
+     */
     public void increaseErrors() {
         errors++;
     }
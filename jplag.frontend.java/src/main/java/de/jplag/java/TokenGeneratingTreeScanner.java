@@ -391,7 +391,7 @@ final class TokenGeneratingTreeScanner extends TreeScanner<Object, Object> {
 
     @Override
     public Object visitErroneous(ErroneousTree node, Object p) {
-        parser.increaseErrors();
+        parser.increaseErrors(filename);
         return super.visitErroneous(node, p);
     }
 
@@ -37,9 +37,10 @@ public class KotlinParserAdapter extends AbstractParser {
      */
     public TokenList parse(File directory, String[] fileNames) {
         tokens = new TokenList();
+        resetErrors();
         for (String file : fileNames) {
             if (!parseFile(directory, file)) {
-                errors++;
+                reportError(file);
             }
             tokens.addToken(new KotlinToken(TokenConstants.FILE_END, file, NOT_SET, NOT_SET, NOT_SET));
         }
@@ -4,6 +4,7 @@ import java.io.File;
 
 import org.kohsuke.MetaInfServices;
 
+import de.jplag.ParseResult;
 import de.jplag.TokenList;
 
 /**
@@ -51,4 +52,17 @@ public class Language implements de.jplag.Language {
     public boolean hasErrors() {
         return parserAdapter.hasErrors();
     }
+
+    @Override
+    public ParseResult parseFiles(File directory, String[] files) {
+        long startTime = System.nanoTime();
+        KotlinParserAdapter parser = new KotlinParserAdapter(); // a new instance per call, as it holds the state of the current parse
+        TokenList tokens = parser.parse(directory, files);
+        return parser.createParseResult(tokens, startTime);
+    }
+
+    @Override
+    public boolean supportsConcurrentParsing() {
+        return true;
+    }
 }
@@ -4,6 +4,7 @@ import java.io.File;
 
 import org.kohsuke.MetaInfServices;
 
+import de.jplag.ParseResult;
 import de.jplag.TokenList;
 
 @MetaInfServices(de.jplag.Language.class)
@@ -46,4 +47,17 @@ public class Language implements de.jplag.Language {
     public boolean hasErrors() {
         return this.parser.hasErrors();
     }
+
+    @Override
+    public ParseResult parseFiles(File directory, String[] files) {
+        long startTime = System.nanoTime();
+        Parser parser = new Parser(); // a new instance per call, as it holds the state of the current parse
+        TokenList tokens = parser.parse(directory, files);
+        return parser.createParseResult(tokens, startTime);
+    }
+
+    @Override
+    public boolean supportsConcurrentParsing() {
+        return true;
+    }
 }
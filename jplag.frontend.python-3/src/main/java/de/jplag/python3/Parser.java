@@ -32,11 +32,11 @@ public class Parser extends AbstractParser {
 
     public TokenList parse(File directory, String[] files) {
         tokens = new TokenList();
-        errors = 0;
+        resetErrors();
         for (String file : files) {
             logger.trace("Parsing file {}", file);
             if (!parseFile(directory, file)) {
-                errors++;
+                reportError(file);
             }
             tokens.addToken(new Python3Token(Python3TokenConstants.FILE_END, file, -1, -1, -1));
         }
@@ -40,10 +40,10 @@ public class RParserAdapter extends AbstractParser implements RTokenConstants {
      */
     public TokenList parse(File directory, String[] fileNames) {
         tokens = new TokenList();
-        errors = 0;
+        resetErrors();
         for (String fileName : fileNames) {
             if (!parseFile(directory, fileName)) {
-                errors++;
+                reportError(fileName);
             }
             tokens.addToken(new RToken(FILE_END, fileName, -1, -1, -1));
         }
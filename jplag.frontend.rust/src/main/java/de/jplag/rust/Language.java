@@ -2,6 +2,7 @@ package de.jplag.rust;
 
 import java.io.File;
 
+import de.jplag.ParseResult;
 import de.jplag.TokenList;
 
 public class Language implements de.jplag.Language {
@@ -47,4 +48,17 @@ public class Language implements de.jplag.Language {
         return parserAdapter.hasErrors();
     }
 
+    @Override
+    public ParseResult parseFiles(File directory, String[] files) {
+        long startTime = System.nanoTime();
+        RustParserAdapter parser = new RustParserAdapter(); // a new instance per call, as it holds the state of the current parse
+        TokenList tokens = parser.parse(directory, files);
+        return parser.createParseResult(tokens, startTime);
+    }
+
+    @Override
+    public boolean supportsConcurrentParsing() {
+        return true;
+    }
+
 }
@@ -30,10 +30,10 @@ public class RustParserAdapter extends AbstractParser {
      */
     public TokenList parse(File directory, String[] fileNames) {
         tokens = new TokenList();
-        errors = 0;
+        resetErrors();
         for (String fileName : fileNames) {
             if (!parseFile(directory, fileName)) {
-                errors++;
+                reportError(fileName);
             }
             tokens.addToken(new RustToken(TokenConstants.FILE_END, fileName, NOT_SET, NOT_SET, NOT_SET));
         }
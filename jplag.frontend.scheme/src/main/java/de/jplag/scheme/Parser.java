@@ -19,12 +19,12 @@ public class Parser extends AbstractParser {
 
     public TokenList parse(File directory, String[] files) {
         tokens = new TokenList();
-        errors = 0;
+        resetErrors();
         for (String file : files) {
             currentFile = file;
             logger.trace("Parsing file {}", file);
             if (!SchemeParser.parseFile(directory, file, null, this))
-                errors++;
+                reportError(file);
             tokens.addToken(new SchemeToken(SchemeTokenConstants.FILE_END, currentFile));
         }
         return tokens;
@@ -4,6 +4,7 @@ import java.io.File;
 
 import org.kohsuke.MetaInfServices;
 
+import de.jplag.ParseResult;
 import de.jplag.TokenList;
 
 /**
@@ -15,10 +16,12 @@ import de.jplag.TokenList;
 public class Language implements de.jplag.Language {
 
     public static final String IDENTIFIER = "text";
+    private final TextTokenTypes tokenTypes; // shared by all parses, as the token types need to be consistent
     private final ParserAdapter parserAdapter;
 
     public Language() {
-        parserAdapter = new ParserAdapter();
+        tokenTypes = new TextTokenTypes();
+        parserAdapter = new ParserAdapter(tokenTypes);
     }
 
     @Override
@@ -50,4 +53,22 @@ public class Language implements de.jplag.Language {
     public boolean hasErrors() {
         return parserAdapter.hasErrors();
     }
+
+    @Override
+    public ParseResult parseFiles(File directory, String[] files) {
+        long startTime = System.nanoTime();
+        ParserAdapter parser = new ParserAdapter(tokenTypes); // a new instance per call, as it holds the state of the current parse
+        TokenList tokens = parser.parse(directory, files);
+        return parser.createParseResult(tokens, startTime);
+    }
+
+    @Override
+    public boolean supportsConcurrentParsing() {
+        return true;
+    }
+
+    @Override
+    public boolean hasFixedTokenTypes() {
+        return false; // the token types are created while parsing
+    }
 }
@@ -2,8 +2,6 @@ package de.jplag.text;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.util.HashMap;
-import java.util.Map;
 
 import antlr.Token;
 
@@ -13,19 +11,26 @@ import de.jplag.TokenList;
 
 public class ParserAdapter extends AbstractParser {
 
-    private final Map<String, Integer> tokenTypes = new HashMap<>();
-    private int tokenTypeIndex = 1; // 0 is FILE_END token, SEPARATOR is not used as there are no methods.
+    private final TextTokenTypes tokenTypes;
 
     private TokenList tokens;
     private String currentFile;
 
+    /**
+     * Creates the parser adapter.
+     * @param tokenTypes are the token types, which can be shared with other parser adapters.
+     */
+    public ParserAdapter(TextTokenTypes tokenTypes) {
+        this.tokenTypes = tokenTypes;
+    }
+
     public TokenList parse(File directory, String[] files) {
         tokens = new TokenList();
-        errors = 0;
+        resetErrors();
         for (String file : files) {
             logger.trace("Parsing file {}", file);
             if (!parseFile(directory, file)) {
-                errors++;
+                reportError(file);
             }
             tokens.addToken(new TextToken(TokenConstants.FILE_END, file));
         }
@@ -39,7 +44,7 @@ public class ParserAdapter extends AbstractParser {
     public void add(Token token) {
         if (token instanceof AntlrParserToken parserToken) {
             String text = token.getText();
-            int type = getTokenType(text);
+            int type = tokenTypes.getTokenType(text);
             tokens.addToken(new TextToken(text, type, currentFile, parserToken));
         } else {
             throw new IllegalArgumentException("Illegal token implementation: " + token);
@@ -69,16 +74,4 @@ public class ParserAdapter extends AbstractParser {
         }
         return true;
     }
-
-    private int getTokenType(String text) {
-        text = text.toLowerCase();
-        tokenTypes.computeIfAbsent(text, it -> {
-            if (tokenTypeIndex == Integer.MAX_VALUE) {
-                throw new IllegalStateException("Too many token types, should not happen!");
-            }
-            return ++tokenTypeIndex;
-        });
-        return tokenTypes.get(text);
-
-    }
 }
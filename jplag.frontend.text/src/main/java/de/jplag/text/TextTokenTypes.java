@@ -0,0 +1,28 @@
+package de.jplag.text;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Token types of the text frontend, which are created for each distinct (case-insensitive) word. The types can be
+ * shared by concurrently parsing parser adapters.
+ */
+public class TextTokenTypes {
+    private final Map<String, Integer> tokenTypes = new ConcurrentHashMap<>();
+    private final AtomicInteger tokenTypeIndex = new AtomicInteger(1); // 0 is FILE_END token, SEPARATOR is not used as there are no methods.
+
+    /**
+     * Returns the token type of a word, which is created on its first occurrence.
+     * @param text is the word.
+     * @return the token type.
+     */
+    public int getTokenType(String text) {
+        return tokenTypes.computeIfAbsent(text.toLowerCase(), it -> {
+            if (tokenTypeIndex.get() == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Too many token types, should not happen!");
+            }
+            return tokenTypeIndex.incrementAndGet();
+        });
+    }
+}
@@ -6,13 +6,16 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.File;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.jplag.ParseResult;
 import de.jplag.Token;
 import de.jplag.TokenList;
 import de.jplag.TokenPrinter;
@@ -49,4 +52,19 @@ class TextFrontendTest {
         assertEquals(156, tokenTypes.values().size());
     }
 
+    /**
+     * Concurrent parses of a single instance produce the same tokens and token types as a sequential parse.
+     */
+    @Test
+    void testConcurrentParsing() {
+        String[] input = new String[] {TEST_SUBJECT};
+        List<Integer> expected = frontend.parseFiles(baseDirectory, input).tokens().allTokens().stream().map(Token::getType).toList();
+
+        assertTrue(frontend.supportsConcurrentParsing());
+        List<ParseResult> results = IntStream.range(0, 8).parallel().mapToObj(it -> frontend.parseFiles(baseDirectory, input)).toList();
+        for (ParseResult result : results) {
+            assertEquals(0, result.errors());
+            assertEquals(expected, result.tokens().allTokens().stream().map(Token::getType).toList());
+        }
+    }
 }
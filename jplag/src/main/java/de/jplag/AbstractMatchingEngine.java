@@ -0,0 +1,87 @@
+package de.jplag;
+
+import static de.jplag.TokenConstants.FILE_END;
+import static de.jplag.TokenConstants.SEPARATOR_TOKEN;
+
+import de.jplag.options.JPlagOptions;
+
+/**
+ * Common base of the matching engines. It ensures that the smaller submission is always compared to the larger one and
+ * provides the initial marks of a comparison.
+ */
+public abstract class AbstractMatchingEngine implements MatchingEngine {
+
+    protected final JPlagOptions options;
+    protected final ComparisonStatistics statistics;
+    private final ThreadLocal<ComparisonScratch> scratch = ThreadLocal.withInitial(ComparisonScratch::new);
+
+    protected AbstractMatchingEngine(JPlagOptions options, ComparisonStatistics statistics) {
+        this.options = options;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public final JPlagComparison compare(Submission firstSubmission, Submission secondSubmission) {
+        return swapAndCompare(firstSubmission, secondSubmission, false);
+    }
+
+    @Override
+    public final JPlagComparison compareWithBaseCode(Submission submission, Submission baseCodeSubmission) {
+        return swapAndCompare(submission, baseCodeSubmission, true);
+    }
+
+    /**
+     * Compares two submissions.
+     * @param firstSubmission is the submission with the smaller sequence.
+     * @param secondSubmission is the submission with the larger sequence.
+     * @param isBaseCodeComparison specifies whether one of the submissions is the base code.
+     * @return the comparison results.
+     */
+    protected abstract JPlagComparison compare(Submission firstSubmission, Submission secondSubmission, boolean isBaseCodeComparison);
+
+    /**
+     * Prepares the working memory of the current thread for a comparison. The marks of both submissions are initialized:
+     * Separator tokens are always marked, basecode matches are marked for non-basecode comparisons.
+     * @param firstSubmission is the first submission of the comparison.
+     * @param secondSubmission is the second submission of the comparison.
+     * @param isBaseCodeComparison Whether the {@link Submission#getBaseCodeMarks() basecode} matches should be enabled for
+     * matching.
+     * @return the prepared working memory.
+     */
+    final ComparisonScratch prepareScratch(Submission firstSubmission, Submission secondSubmission, boolean isBaseCodeComparison) {
+        ComparisonScratch currentScratch = scratch.get();
+        currentScratch.prepare(firstSubmission.getNumberOfTokens(), secondSubmission.getNumberOfTokens());
+        markTokens(firstSubmission, currentScratch.firstMarks(), isBaseCodeComparison);
+        markTokens(secondSubmission, currentScratch.secondMarks(), isBaseCodeComparison);
+        return currentScratch;
+    }
+
+    /**
+     * @return whether a token type is never part of a match.
+     */
+    static boolean isAlwaysMarked(int tokenType) {
+        return tokenType == FILE_END || tokenType == SEPARATOR_TOKEN;
+    }
+
+    /**
+     * @return whether the submissions are swapped for their comparison, so that the smaller one is the first submission.
+     */
+    static boolean isSwapped(Submission firstSubmission, Submission secondSubmission) {
+        return firstSubmission.getTokenList().size() > secondSubmission.getTokenList().size();
+    }
+
+    private JPlagComparison swapAndCompare(Submission firstSubmission, Submission secondSubmission, boolean isBaseCodeComparison) {
+        if (isSwapped(firstSubmission, secondSubmission)) {
+            return compare(secondSubmission, firstSubmission, isBaseCodeComparison);
+        }
+        return compare(firstSubmission, secondSubmission, isBaseCodeComparison);
+    }
+
+    private void markTokens(Submission submission, boolean[] marks, boolean isBaseCodeComparison) {
+        int[] types = submission.getTokenList().getTokenTypes();
+        boolean[] baseCodeMarks = isBaseCodeComparison || !options.hasBaseCode() ? null : submission.getBaseCodeMarks();
+        for (int i = 0; i < types.length; i++) {
+            marks[i] = isAlwaysMarked(types[i]) || (baseCodeMarks != null && baseCodeMarks[i]);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package de.jplag;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.jplag.options.JPlagOptions;
+
+/**
+ * Persistent index of an archive of submissions, which allows comparing new submissions against the archive without
+ * parsing it again. For each archived submission, the index stores its files, its tokens, and its winnowed fingerprints
+ * (see {@link FingerprintIndex}). Only the fingerprints are loaded with the index; the tokens of a submission are read
+ * when it is a candidate for a comparison.
+ * <p>
+ * The index consists of two files in its directory: the submissions file with the names, files, token positions, and
+ * fingerprints of the submissions, and the tokens file with the tokens of all submissions in the format of the
+ * {@link TokenCache}. The tokens depend on the version of the frontend and the fingerprints on the language and the
+ * minimum token match, thus the index can only be used with the frontend and the options it was built with. Base code
+ * and languages without fixed token types are not supported.
+ * <p>
+ * Both files are written to temporary files and then moved into place, and each build has an id that is stored in both
+ * files. A loaded index keeps its tokens file open, thus it can still be read after the index was built again, and it
+ * is not loaded from the files of different builds. The index needs to be closed after use.
+ * </p>
+ */
+public class ArchiveIndex implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveIndex.class);
+
+    private static final String SUBMISSIONS_FILE = "submissions.bin";
+    private static final String TOKENS_FILE = "tokens.bin";
+    private static final String ARCHIVE_NAME = "archive"; // prefix of the names of the archived submissions
+    private static final int MAGIC = 0x4A504149; // "JPAI"
+    private static final int FORMAT_VERSION = 2;
+    private static final int TOKENS_HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES;
+
+    private final Path submissionsFile;
+    private final FileChannel tokens;
+    private final FileTime modificationTime; // of the submissions file when the index was built or loaded
+    private final JPlagOptions options;
+    private final List<Entry> entries;
+    private final FingerprintIndex fingerprintIndex;
+
+    private ArchiveIndex(Path directory, JPlagOptions options, long buildId, List<Entry> entries, List<long[]> fingerprints) throws IOException {
+        submissionsFile = directory.resolve(SUBMISSIONS_FILE);
+        modificationTime = Files.getLastModifiedTime(submissionsFile);
+        tokens = FileChannel.open(directory.resolve(TOKENS_FILE), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(TOKENS_HEADER_SIZE);
+            readFully(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != FORMAT_VERSION || header.getLong(2 * Integer.BYTES) != buildId) {
+                throw new IOException("The tokens file does not belong to the submissions file of the archive index, it may be built right now");
+            }
+        } catch (IOException exception) {
+            tokens.close();
+            throw exception;
+        }
+        this.options = options;
+        this.entries = entries;
+        fingerprintIndex = new FingerprintIndex(fingerprints);
+    }
+
+    /**
+     * Builds the index of the valid submissions of an archive. An existing index in the directory is replaced, indices that
+     * were loaded from it before can still be used.
+     * @param archive contains the parsed submissions of the archive.
+     * @param options are the options of the comparison, which must not use base code.
+     * @param directory is the directory of the index, which is created if it does not exist.
+     * @return the index.
+     * @throws IOException if the index cannot be written.
+     * @throws IllegalArgumentException if the language of the options has no fixed token types.
+     */
+    public static ArchiveIndex build(SubmissionSet archive, JPlagOptions options, Path directory) throws IOException {
+        Language language = options.getLanguage();
+        if (!language.hasFixedTokenTypes()) {
+            throw new IllegalArgumentException("The tokens of the language " + language.getName() + " cannot be stored in an archive index");
+        }
+        Files.createDirectories(directory);
+        long buildId = ThreadLocalRandom.current().nextLong();
+        List<Entry> entries = new ArrayList<>();
+        List<long[]> fingerprints = new ArrayList<>();
+        Path temporaryTokensFile = null;
+        Path temporarySubmissionsFile = null;
+        try {
+            temporaryTokensFile = Files.createTempFile(directory, TOKENS_FILE, ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryTokensFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeLong(buildId);
+                for (Submission submission : archive.getSubmissions()) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    TokenCache.writeTokens(new DataOutputStream(bytes), submission.getTokenList());
+                    long tokenOffset = output.size();
+                    bytes.writeTo(output);
+                    List<String> files = submission.getFiles().stream().map(File::getAbsolutePath).toList();
+                    entries.add(new Entry(submission.getName(), submission.getRoot().getAbsolutePath(), files, tokenOffset, bytes.size()));
+                    fingerprints.add(FingerprintIndex.fingerprintsOf(submission, options));
+                }
+            }
+            temporarySubmissionsFile = Files.createTempFile(directory, SUBMISSIONS_FILE, ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporarySubmissionsFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeUTF(language.getIdentifier());
+                output.writeUTF(TokenCache.frontendVersion(language));
+                output.writeInt(options.getMinimumTokenMatch());
+                output.writeLong(buildId);
+                output.writeInt(entries.size());
+                for (int i = 0; i < entries.size(); i++) {
+                    writeEntry(output, entries.get(i), fingerprints.get(i));
+                }
+            }
+            moveIntoPlace(temporaryTokensFile, directory.resolve(TOKENS_FILE));
+            moveIntoPlace(temporarySubmissionsFile, directory.resolve(SUBMISSIONS_FILE));
+        } finally {
+            deleteQuietly(temporaryTokensFile);
+            deleteQuietly(temporarySubmissionsFile);
+        }
+        logger.info("Indexed {} submissions of the archive in {}", entries.size(), directory);
+        return new ArchiveIndex(directory, options, buildId, entries, fingerprints);
+    }
+
+    /**
+     * Loads the index of an archive.
+     * @param directory is the directory of the index.
+     * @param options are the options of the comparison, whose language, frontend version, and minimum token match need to
+     * be the ones of the index.
+     * @return the index.
+     * @throws IOException if the index cannot be read or was built with another frontend or other options.
+     */
+    public static ArchiveIndex load(Path directory, JPlagOptions options) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(directory.resolve(SUBMISSIONS_FILE))))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown format of the archive index");
+            }
+            String language = input.readUTF();
+            String frontendVersion = input.readUTF();
+            int minimumTokenMatch = input.readInt();
+            if (!language.equals(options.getLanguage().getIdentifier()) || !frontendVersion.equals(TokenCache.frontendVersion(options.getLanguage()))
+                    || minimumTokenMatch != options.getMinimumTokenMatch()) {
+                throw new IOException(String.format("The archive index was built for language %s (frontend version %s) and minimum token match %d",
+                        language, frontendVersion, minimumTokenMatch));
+            }
+            long buildId = input.readLong();
+            int count = input.readInt();
+            List<Entry> entries = new ArrayList<>(count);
+            List<long[]> fingerprints = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(readEntry(input, fingerprints));
+            }
+            logger.info("Loaded the archive index with {} submissions", count);
+            return new ArchiveIndex(directory, options, buildId, entries, fingerprints);
+        }
+    }
+
+    /**
+     * @return the number of archived submissions.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return whether the index was built again since it was loaded, e.g. by another process.
+     */
+    public boolean isOutdated() {
+        try {
+            return !Files.getLastModifiedTime(submissionsFile).equals(modificationTime);
+        } catch (IOException exception) {
+            return true;
+        }
+    }
+
+    /**
+     * Finds the archived submissions that share enough fingerprints with a submission, see
+     * {@link JPlagOptions#getMinimumSharedFingerprints()}. Only these can have matches with it.
+     * @param submission is a parsed submission that is not part of the archive.
+     * @return the ascending indices of the candidates.
+     */
+    public int[] findCandidates(Submission submission) {
+        return fingerprintIndex.findCandidates(FingerprintIndex.fingerprintsOf(submission, options), options.getMinimumSharedFingerprints());
+    }
+
+    /**
+     * Loads an archived submission with its tokens. Its name is prefixed with "archive", which distinguishes it from the
+     * compared submissions.
+     * @param index is the index of the submission.
+     * @return the submission, which is not indexed for the matching engine yet.
+     * @throws IOException if the tokens cannot be read.
+     */
+    public Submission loadSubmission(int index) throws IOException {
+        Entry entry = entries.get(index);
+        ByteBuffer buffer = ByteBuffer.allocate(entry.tokenLength());
+        readFully(buffer, entry.tokenOffset());
+        List<File> files = entry.files().stream().map(File::new).toList();
+        Submission submission = new Submission(ARCHIVE_NAME + File.separator + entry.name(), new File(entry.root()), false, files,
+                options.getLanguage());
+        submission.setTokenList(TokenCache.readTokens(new DataInputStream(new ByteArrayInputStream(buffer.array()))));
+        return submission;
+    }
+
+    /**
+     * Closes the tokens file, after which no more submissions can be loaded.
+     */
+    @Override
+    public void close() {
+        try {
+            tokens.close();
+        } catch (IOException exception) {
+            logger.debug("Cannot close the tokens file of the archive index: {}", exception.getMessage());
+        }
+    }
+
+    /**
+     * Fills the buffer from the tokens file, positional reads allow loading submissions concurrently.
+     */
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (tokens.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("The tokens file of the archive index is truncated");
+            }
+        }
+    }
+
+    private static void moveIntoPlace(Path temporaryFile, Path file) throws IOException {
+        try {
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException exception) {
+                logger.debug("Cannot delete {}: {}", file, exception.getMessage());
+            }
+        }
+    }
+
+    private static void writeEntry(DataOutputStream output, Entry entry, long[] fingerprints) throws IOException {
+        output.writeUTF(entry.name());
+        output.writeUTF(entry.root());
+        output.writeInt(entry.files().size());
+        for (String file : entry.files()) {
+            output.writeUTF(file);
+        }
+        output.writeLong(entry.tokenOffset());
+        output.writeInt(entry.tokenLength());
+        output.writeInt(fingerprints.length);
+        for (long fingerprint : fingerprints) {
+            output.writeLong(fingerprint);
+        }
+    }
+
+    private static Entry readEntry(DataInputStream input, List<long[]> fingerprints) throws IOException {
+        String name = input.readUTF();
+        String root = input.readUTF();
+        int fileCount = input.readInt();
+        List<String> files = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            files.add(input.readUTF());
+        }
+        long tokenOffset = input.readLong();
+        int tokenLength = input.readInt();
+        long[] submissionFingerprints = new long[input.readInt()];
+        for (int i = 0; i < submissionFingerprints.length; i++) {
+            submissionFingerprints[i] = input.readLong();
+        }
+        fingerprints.add(submissionFingerprints);
+        return new Entry(name, root, files, tokenOffset, tokenLength);
+    }
+
+    /**
+     * An archived submission and the position of its tokens in the tokens file.
+     */
+    private record Entry(String name, String root, List<String> files, long tokenOffset, int tokenLength) {
+    }
+}
@@ -0,0 +1,269 @@
+package de.jplag;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.jplag.options.JPlagOptions;
+
+/**
+ * Matching engine that persists the matches of the compared submission pairs, which allows re-running an assignment
+ * without comparing the unchanged pairs again. It delegates the indexing and all comparisons that are not cached to
+ * another engine.
+ * <p>
+ * A pair is identified by the fingerprints of its submissions: a hash of the token types and, if there is base code,
+ * the base code marks, which is everything the matches depend on apart from the options. The options that affect the
+ * matches (language, minimum token match, and matching algorithm) select the cache file. For each pair, the file stores
+ * the number of matched tokens and the tiles. The file is loaded when the engine is created and written by
+ * {@link #save()}, which only keeps the pairs this run looked up or computed. Thus, the file does not grow with the
+ * pairs of submissions that changed or were removed since, and it stays as large as the comparisons of the last run.
+ * </p>
+ */
+public class CachingMatchingEngine implements MatchingEngine {
+    private static final Logger logger = LoggerFactory.getLogger(CachingMatchingEngine.class);
+
+    private static final int MAGIC = 0x4A505052; // "JPPR"
+    private static final int FORMAT_VERSION = 1;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final MatchingEngine engine;
+    private final ComparisonStatistics statistics;
+    private final boolean withBaseCode;
+    private final Path file; // null if the cache directory is invalid
+    private final Map<PairKey, int[]> loadedTiles = new ConcurrentHashMap<>(); // (start of first, start of second, length) triples
+    private final Map<PairKey, int[]> tiles = new ConcurrentHashMap<>(); // the pairs of this run, which are saved
+    private final Map<Submission, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the engine and loads the cache file of the options.
+     * @param engine computes the matches of the pairs that are not cached.
+     * @param options determine the cache directory and the cache file.
+     * @param statistics counts the cache hits and misses.
+     */
+    public CachingMatchingEngine(MatchingEngine engine, JPlagOptions options, ComparisonStatistics statistics) {
+        this.engine = engine;
+        this.statistics = statistics;
+        withBaseCode = options.hasBaseCode();
+        file = resolveFile(options);
+        load();
+    }
+
+    @Override
+    public void createIndices(SubmissionSet submissionSet) {
+        engine.createIndices(submissionSet);
+    }
+
+    @Override
+    public void createIndex(Submission submission) {
+        engine.createIndex(submission);
+    }
+
+    @Override
+    public JPlagComparison compare(Submission firstSubmission, Submission secondSubmission) {
+        // the cached matches belong to the order in which the engine compares the submissions:
+        Submission first = AbstractMatchingEngine.isSwapped(firstSubmission, secondSubmission) ? secondSubmission : firstSubmission;
+        Submission second = first == firstSubmission ? secondSubmission : firstSubmission;
+        PairKey key = new PairKey(fingerprintOf(first), fingerprintOf(second));
+
+        int[] cachedTiles = tiles.get(key);
+        if (cachedTiles == null) {
+            cachedTiles = loadedTiles.get(key);
+        }
+        if (cachedTiles != null) {
+            tiles.putIfAbsent(key, cachedTiles);
+            statistics.countCachedComparison();
+            JPlagComparison comparison = new JPlagComparison(first, second);
+            for (int i = 0; i < cachedTiles.length; i += 3) {
+                comparison.addMatch(cachedTiles[i], cachedTiles[i + 1], cachedTiles[i + 2]);
+            }
+            return comparison;
+        }
+
+        statistics.countUncachedComparison();
+        JPlagComparison comparison = engine.compare(first, second);
+        List<Match> matches = comparison.getMatches();
+        int[] computedTiles = new int[3 * matches.size()];
+        for (int i = 0; i < matches.size(); i++) {
+            Match match = matches.get(i);
+            computedTiles[3 * i] = match.startOfFirst();
+            computedTiles[3 * i + 1] = match.startOfSecond();
+            computedTiles[3 * i + 2] = match.length();
+        }
+        tiles.put(key, computedTiles);
+        return comparison;
+    }
+
+    @Override
+    public JPlagComparison compareWithBaseCode(Submission submission, Submission baseCodeSubmission) {
+        return engine.compareWithBaseCode(submission, baseCodeSubmission);
+    }
+
+    /**
+     * Writes the cache file with the pairs this run looked up or computed, the other loaded pairs are dropped. Failures are
+     * only logged, as the cache is optional.
+     */
+    public void save() {
+        if (file == null) {
+            return;
+        }
+        Path temporaryFile = null;
+        try {
+            Files.createDirectories(file.getParent());
+            temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                writePairs(output);
+            }
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException exception) {
+            logger.warn("Cannot write the result cache {}: {}", file, exception.getMessage());
+        } finally {
+            if (temporaryFile != null) {
+                try {
+                    Files.deleteIfExists(temporaryFile);
+                } catch (IOException exception) {
+                    logger.debug("Cannot delete {}: {}", temporaryFile, exception.getMessage());
+                }
+            }
+        }
+    }
+
+    private void load() {
+        if (file == null || !Files.isRegularFile(file)) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            readPairs(input);
+            logger.info("Loaded {} submission pairs from the result cache", loadedTiles.size());
+        } catch (IOException | RuntimeException exception) {
+            logger.warn("Ignoring the unreadable result cache {}: {}", file, exception.getMessage());
+            loadedTiles.clear();
+        }
+    }
+
+    private void writePairs(DataOutputStream output) throws IOException {
+        Map<PairKey, int[]> pairs = Map.copyOf(tiles);
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(pairs.size());
+        for (Map.Entry<PairKey, int[]> pair : pairs.entrySet()) {
+            writeFingerprint(output, pair.getKey().first());
+            writeFingerprint(output, pair.getKey().second());
+            int[] pairTiles = pair.getValue();
+            int matchedTokens = 0;
+            for (int i = 2; i < pairTiles.length; i += 3) {
+                matchedTokens += pairTiles[i];
+            }
+            output.writeInt(matchedTokens);
+            output.writeInt(pairTiles.length / 3);
+            for (int value : pairTiles) {
+                output.writeInt(value);
+            }
+        }
+    }
+
+    private void readPairs(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unknown format");
+        }
+        int pairCount = input.readInt();
+        for (int pair = 0; pair < pairCount; pair++) {
+            PairKey key = new PairKey(readFingerprint(input), readFingerprint(input));
+            int matchedTokens = input.readInt();
+            int[] pairTiles = new int[3 * input.readInt()];
+            for (int i = 0; i < pairTiles.length; i++) {
+                pairTiles[i] = input.readInt();
+                if (i % 3 == 2) {
+                    matchedTokens -= pairTiles[i];
+                }
+            }
+            if (matchedTokens != 0) {
+                throw new IOException("The tiles do not match the number of matched tokens");
+            }
+            loadedTiles.put(key, pairTiles);
+        }
+    }
+
+    private Fingerprint fingerprintOf(Submission submission) {
+        return fingerprints.computeIfAbsent(submission, it -> {
+            MessageDigest digest = createDigest();
+            int[] types = it.getTokenList().getTokenTypes();
+            ByteBuffer buffer = ByteBuffer.allocate(types.length * Integer.BYTES);
+            buffer.asIntBuffer().put(types);
+            digest.update(buffer);
+            boolean[] baseCodeMarks = it.getBaseCodeMarks();
+            if (withBaseCode && baseCodeMarks != null) {
+                for (boolean mark : baseCodeMarks) {
+                    digest.update(mark ? (byte) 1 : (byte) 0);
+                }
+            }
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+            return new Fingerprint(hash.getLong(), hash.getLong());
+        });
+    }
+
+    /**
+     * @return the cache file of the options, or null if the cache directory is invalid.
+     */
+    private static Path resolveFile(JPlagOptions options) {
+        String optionsKey = options.getLanguage().getIdentifier() + '\0' + options.getMinimumTokenMatch() + '\0' + options.getMatchingAlgorithm()
+                + '\0' + FORMAT_VERSION;
+        String name = HexFormat.of().formatHex(createDigest().digest(optionsKey.getBytes(StandardCharsets.UTF_8)), 0, 16) + ".bin";
+        try {
+            return Path.of(options.getResultCacheDirectory()).resolve(name);
+        } catch (InvalidPathException exception) {
+            logger.warn("Cannot use the result cache directory {}: {}", options.getResultCacheDirectory(), exception.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeFingerprint(DataOutputStream output, Fingerprint fingerprint) throws IOException {
+        output.writeLong(fingerprint.high());
+        output.writeLong(fingerprint.low());
+    }
+
+    private static Fingerprint readFingerprint(DataInputStream input) throws IOException {
+        return new Fingerprint(input.readLong(), input.readLong());
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not supported", exception); // every JVM supports it
+        }
+    }
+
+    /**
+     * The first 128 bits of the hash of a submission.
+     */
+    private record Fingerprint(long high, long low) {
+    }
+
+    /**
+     * The fingerprints of the submissions of a pair, in the order in which they are compared.
+     */
+    private record PairKey(Fingerprint first, Fingerprint second) {
+    }
+}
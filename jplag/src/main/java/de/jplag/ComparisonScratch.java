@@ -0,0 +1,54 @@
+package de.jplag;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Working memory of a single comparison of a {@link MatchingEngine}. It contains the marks of the tokens of both
+ * submissions, which are thus no longer stored in the shared tokens. As a consequence, the same submission can be
+ * compared by multiple threads at once. Instances are not thread-safe and are meant to be reused by a single thread for
+ * consecutive comparisons, which avoids allocating new arrays for each comparison.
+ */
+final class ComparisonScratch {
+    private boolean[] firstMarks = new boolean[0];
+    private boolean[] secondMarks = new boolean[0];
+    private final List<Match> matches = new ArrayList<>();
+
+    /**
+     * Prepares the scratch for the next comparison.
+     * @param firstSize is the number of tokens of the first submission.
+     * @param secondSize is the number of tokens of the second submission.
+     */
+    void prepare(int firstSize, int secondSize) {
+        if (firstMarks.length < firstSize) {
+            firstMarks = new boolean[firstSize];
+        }
+        if (secondMarks.length < secondSize) {
+            secondMarks = new boolean[secondSize];
+        }
+        matches.clear();
+    }
+
+    /**
+     * @return the marks of the first submission. The array may be longer than the token list, entries after the last token
+     * are meaningless.
+     */
+    boolean[] firstMarks() {
+        return firstMarks;
+    }
+
+    /**
+     * @return the marks of the second submission. The array may be longer than the token list, entries after the last token
+     * are meaningless.
+     */
+    boolean[] secondMarks() {
+        return secondMarks;
+    }
+
+    /**
+     * @return the reusable list for the matches of the current iteration.
+     */
+    List<Match> matches() {
+        return matches;
+    }
+}
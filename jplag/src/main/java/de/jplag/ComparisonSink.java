@@ -0,0 +1,215 @@
+package de.jplag;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import de.jplag.clustering.ComparisonSimilarity;
+import de.jplag.options.JPlagOptions;
+import de.jplag.options.SimilarityMetric;
+
+/**
+ * Collects the comparisons of a JPlag run while they are created. The similarity distributions and the similarities for
+ * the clustering are scalar values that are updated for each comparison. If only the comparisons shown in the report
+ * are retained, the comparisons with their matches are kept in a bounded min-heap, thus the memory needed for them does
+ * not grow with the number of submission pairs. In the metrics-only mode, only the shown comparisons are retained and
+ * they do not keep their matches. Parallel workers collect their comparisons in their own accumulators, which are
+ * merged into the sink once they are done.
+ */
+public class ComparisonSink {
+    private static final int SIMILARITY_DISTRIBUTION_SIZE = 10;
+
+    /**
+     * Orders the comparisons by similarity (descending), and comparisons with the same similarity by their submissions.
+     */
+    private static final Comparator<RetainedComparison> ORDER = Comparator.comparing(RetainedComparison::similarity, Comparator.reverseOrder())
+            .thenComparing(RetainedComparison::firstSubmission).thenComparing(RetainedComparison::secondSubmission);
+
+    private final MatchingEngine matchingEngine; // null if the matches are always kept
+    private final int parallelism; // for recomputing the matches
+    private final int capacity; // maximum number of retained comparisons, -1 for all
+    private final SimilarityMetric clusteringMetric; // null if clustering is disabled
+    private final Accumulator collected; // guarded by this sink
+
+    /**
+     * Creates the sink for the comparisons of a JPlag run, which keeps the matches of the retained comparisons.
+     * @param options determine whether only the shown comparisons are retained, and whether clustering is enabled.
+     */
+    public ComparisonSink(JPlagOptions options) {
+        this(options, null);
+    }
+
+    /**
+     * Creates the sink for the comparisons of a JPlag run.
+     * @param options determine whether only the shown comparisons are retained, whether only their metrics are kept, and
+     * whether clustering is enabled.
+     * @param matchingEngine is used to recompute the matches in the metrics-only mode, it needs to be the engine that
+     * created the comparisons. The metrics-only mode needs a limited number of shown comparisons.
+     */
+    public ComparisonSink(JPlagOptions options, MatchingEngine matchingEngine) {
+        boolean metricsOnly = options.isMetricsOnly() && matchingEngine != null && options.getMaximumNumberOfComparisons() != -1;
+        this.matchingEngine = metricsOnly ? matchingEngine : null;
+        parallelism = options.getParallelism();
+        capacity = options.isRetainOnlyShownComparisons() || metricsOnly ? options.getMaximumNumberOfComparisons() : -1;
+        clusteringMetric = options.getClusteringOptions().isEnabled() ? options.getClusteringOptions().getSimilarityMetric() : null;
+        collected = new Accumulator();
+    }
+
+    /**
+     * Adds a comparison, which is only retained if it is one of the most similar comparisons. Each call synchronizes on the
+     * sink, thus parallel workers should collect their comparisons in their own {@link #createAccumulator() accumulator}
+     * instead.
+     * @param comparison is the comparison, whose similarity needs to reach the threshold.
+     */
+    public synchronized void add(JPlagComparison comparison) {
+        collected.add(comparison);
+    }
+
+    /**
+     * @return a new accumulator for the comparisons of a single worker, which is {@link #merge(Accumulator) merged} into
+     * this sink once the worker is done.
+     */
+    public Accumulator createAccumulator() {
+        return new Accumulator();
+    }
+
+    /**
+     * Adds the comparisons of an accumulator, which must not be used afterwards.
+     * @param accumulator is an accumulator of this sink.
+     */
+    public synchronized void merge(Accumulator accumulator) {
+        collected.addAll(accumulator);
+    }
+
+    /**
+     * @return the retained comparisons sorted by similarity (descending). In the metrics-only mode, their matches are
+     * recomputed on each call.
+     */
+    public List<JPlagComparison> getComparisons() {
+        return getComparisons(-1);
+    }
+
+    /**
+     * @param numberOfComparisons is the number of requested comparisons, -1 for all retained comparisons.
+     * @return the most similar retained comparisons sorted by similarity (descending). In the metrics-only mode, the
+     * matches of the requested comparisons are recomputed in parallel on each call.
+     */
+    public List<JPlagComparison> getComparisons(int numberOfComparisons) {
+        List<RetainedComparison> sorted;
+        synchronized (this) {
+            sorted = new ArrayList<>(collected.comparisons);
+        }
+        sorted.sort(ORDER);
+        if (numberOfComparisons != -1 && numberOfComparisons < sorted.size()) {
+            sorted = sorted.subList(0, numberOfComparisons);
+        }
+        if (matchingEngine == null || sorted.isEmpty()) {
+            return sorted.stream().map(RetainedComparison::comparison).collect(Collectors.toCollection(ArrayList::new));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, sorted.size()));
+        try {
+            List<CompletableFuture<JPlagComparison>> recomputed = sorted.stream()
+                    .map(it -> CompletableFuture.supplyAsync(() -> matchingEngine.compare(it.firstSubmission(), it.secondSubmission()), executor))
+                    .toList();
+            return recomputed.stream().map(CompletableFuture::join).collect(Collectors.toCollection(ArrayList::new));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return the number of retained comparisons.
+     */
+    public synchronized int getNumberOfComparisons() {
+        return collected.comparisons.size();
+    }
+
+    /**
+     * @return the similarity distribution of all added comparisons, see {@link JPlagResult#getSimilarityDistribution()}.
+     */
+    public synchronized int[] getSimilarityDistribution() {
+        return collected.similarityDistribution.clone();
+    }
+
+    /**
+     * @return the maximum similarity distribution of all added comparisons, see
+     * {@link JPlagResult#getMaxSimilarityDistribution()}.
+     */
+    public synchronized int[] getMaxSimilarityDistribution() {
+        return collected.maxSimilarityDistribution.clone();
+    }
+
+    /**
+     * @return the similarities of all added comparisons under the clustering metric, empty if clustering is disabled.
+     */
+    public synchronized List<ComparisonSimilarity> getClusteringSimilarities() {
+        return new ArrayList<>(collected.clusteringSimilarities);
+    }
+
+    /**
+     * @return the index of the distribution bucket of a similarity in percent: 0 for [90% - 100%], ..., 9 for [0% - 10%).
+     */
+    private static int bucketOf(float similarity) {
+        int bucketSize = 100 / SIMILARITY_DISTRIBUTION_SIZE;
+        int index = Math.min((int) (similarity / bucketSize), SIMILARITY_DISTRIBUTION_SIZE - 1); // 100% counts towards the highest bucket
+        return SIMILARITY_DISTRIBUTION_SIZE - 1 - index; // bucket order is reversed, so that the highest value bucket has the lowest index
+    }
+
+    /**
+     * Collects the comparisons of a single worker without synchronization: the distributions, the similarities for the
+     * clustering, and the retained comparisons in a bounded min-heap like the sink.
+     */
+    public final class Accumulator {
+        private final PriorityQueue<RetainedComparison> comparisons = new PriorityQueue<>(ORDER.reversed()); // the head is the least similar
+        private final int[] similarityDistribution = new int[SIMILARITY_DISTRIBUTION_SIZE];
+        private final int[] maxSimilarityDistribution = new int[SIMILARITY_DISTRIBUTION_SIZE];
+        private final List<ComparisonSimilarity> clusteringSimilarities = new ArrayList<>();
+
+        private Accumulator() {
+        }
+
+        /**
+         * Adds a comparison, see {@link ComparisonSink#add(JPlagComparison)}.
+         * @param comparison is the comparison, whose similarity needs to reach the threshold.
+         */
+        public void add(JPlagComparison comparison) {
+            similarityDistribution[bucketOf(comparison.similarity())]++;
+            maxSimilarityDistribution[bucketOf(comparison.maximalSimilarity())]++;
+            if (clusteringMetric != null) {
+                clusteringSimilarities.add(new ComparisonSimilarity(comparison.getFirstSubmission(), comparison.getSecondSubmission(),
+                        clusteringMetric.apply(comparison)));
+            }
+            retain(new RetainedComparison(comparison.getFirstSubmission(), comparison.getSecondSubmission(), comparison.similarity(),
+                    matchingEngine == null ? comparison : null));
+        }
+
+        private void addAll(Accumulator other) {
+            for (int i = 0; i < SIMILARITY_DISTRIBUTION_SIZE; i++) {
+                similarityDistribution[i] += other.similarityDistribution[i];
+                maxSimilarityDistribution[i] += other.maxSimilarityDistribution[i];
+            }
+            clusteringSimilarities.addAll(other.clusteringSimilarities);
+            other.comparisons.forEach(this::retain);
+        }
+
+        private void retain(RetainedComparison retained) {
+            if (capacity == -1 || comparisons.size() < capacity) {
+                comparisons.add(retained);
+            } else if (capacity > 0 && ORDER.compare(retained, comparisons.peek()) < 0) {
+                comparisons.poll();
+                comparisons.add(retained);
+            }
+        }
+    }
+
+    /**
+     * A retained comparison, whose matches are only kept if the sink is not in the metrics-only mode.
+     */
+    private record RetainedComparison(Submission firstSubmission, Submission secondSubmission, float similarity, JPlagComparison comparison) {
+    }
+}
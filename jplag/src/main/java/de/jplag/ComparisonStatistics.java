@@ -0,0 +1,88 @@
+package de.jplag;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters that describe the work that was done (or avoided) during the comparison of the submissions. The counters are
+ * thread-safe, thus they can be updated by parallel comparisons.
+ */
+public class ComparisonStatistics {
+    private final LongAdder falsePositiveVerifications = new LongAdder();
+    private final LongAdder skippedComparisons = new LongAdder();
+    private final LongAdder avoidedComparisons = new LongAdder();
+    private final LongAdder cachedComparisons = new LongAdder();
+    private final LongAdder uncachedComparisons = new LongAdder();
+
+    /**
+     * Counts candidate matches that had the same hash as a match, but turned out to be different while verifying them.
+     * @param count is the number of these false positives.
+     */
+    public void addFalsePositiveVerifications(long count) {
+        falsePositiveVerifications.add(count);
+    }
+
+    /**
+     * @return the number of candidate matches that had the same hash, but different tokens.
+     */
+    public long getFalsePositiveVerifications() {
+        return falsePositiveVerifications.sum();
+    }
+
+    /**
+     * Counts a submission pair that was not compared, because its similarity could not reach the threshold.
+     */
+    public void countSkippedComparison() {
+        skippedComparisons.increment();
+    }
+
+    /**
+     * @return the number of submission pairs that were not compared, because their similarity could not reach the
+     * threshold.
+     */
+    public long getSkippedComparisons() {
+        return skippedComparisons.sum();
+    }
+
+    /**
+     * Counts submission pairs that were not compared, because they were not selected as candidates.
+     * @param count is the number of these pairs.
+     */
+    public void addAvoidedComparisons(long count) {
+        avoidedComparisons.add(count);
+    }
+
+    /**
+     * @return the number of submission pairs that were not compared, because they were not selected as candidates.
+     */
+    public long getAvoidedComparisons() {
+        return avoidedComparisons.sum();
+    }
+
+    /**
+     * Counts a submission pair whose matches were loaded from the result cache instead of being computed.
+     */
+    public void countCachedComparison() {
+        cachedComparisons.increment();
+    }
+
+    /**
+     * @return the number of submission pairs whose matches were loaded from the result cache (cache hits).
+     */
+    public long getCachedComparisons() {
+        return cachedComparisons.sum();
+    }
+
+    /**
+     * Counts a submission pair whose matches were not in the result cache, thus they were computed.
+     */
+    public void countUncachedComparison() {
+        uncachedComparisons.increment();
+    }
+
+    /**
+     * @return the number of submission pairs whose matches were not in the result cache (cache misses).
+     */
+    public long getUncachedComparisons() {
+        return uncachedComparisons.sum();
+    }
+}
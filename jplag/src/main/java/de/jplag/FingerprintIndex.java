@@ -0,0 +1,163 @@
+package de.jplag;
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.jplag.options.JPlagOptions;
+
+/**
+ * Inverted index from the fingerprints of the submissions to the submissions that contain them. The fingerprints are
+ * selected via winnowing: For each window of w consecutive k-grams, the k-gram with the minimal hash is selected. As
+ * the window size and the k-gram length satisfy w + k - 1 = minimum token match, every match between two submissions
+ * contains a window that exists in both submissions. Thus, submissions without any shared fingerprint are guaranteed to
+ * have no matches.
+ * <p>
+ * The fingerprints of all submissions are stored in a single {@link TokenHashMap}, where the position of a fingerprint
+ * identifies its submission. The index is immutable after its creation, thus it can be queried in parallel.
+ * </p>
+ */
+public class FingerprintIndex {
+    private final int[] submissionStarts; // fingerprints of submission i are stored at positions submissionStarts[i] ...
+    private final TokenHashMap fingerprintMap;
+
+    /**
+     * Creates the index for a list of submissions.
+     * @param submissions are the submissions, which need to be compared with the base code beforehand if base code is used.
+     * Submissions without a token list are not indexed.
+     * @param options are the options of the comparison.
+     */
+    public FingerprintIndex(List<Submission> submissions, JPlagOptions options) {
+        this(submissions.parallelStream().map(submission -> submission.getTokenList() == null ? new long[0] : fingerprintsOf(submission, options))
+                .toList());
+    }
+
+    /**
+     * Creates the index from the fingerprints of the submissions, which allows persisting them.
+     * @param fingerprints contains the fingerprints of each submission, see
+     * {@link #fingerprintsOf(Submission, JPlagOptions)}.
+     */
+    FingerprintIndex(List<long[]> fingerprints) {
+        submissionStarts = new int[fingerprints.size() + 1];
+        for (int i = 0; i < fingerprints.size(); i++) {
+            submissionStarts[i + 1] = submissionStarts[i] + fingerprints.get(i).length;
+        }
+        long[] allFingerprints = new long[submissionStarts[fingerprints.size()]];
+        for (int i = 0; i < fingerprints.size(); i++) {
+            System.arraycopy(fingerprints.get(i), 0, allFingerprints, submissionStarts[i], fingerprints.get(i).length);
+        }
+        fingerprintMap = new TokenHashMap(allFingerprints, allFingerprints.length);
+    }
+
+    /**
+     * Selects the fingerprints of a submission.
+     * @param submission is the submission, which needs to be compared with the base code beforehand if base code is used.
+     * @param options are the options of the comparison.
+     * @return the distinct fingerprints in ascending order.
+     */
+    static long[] fingerprintsOf(Submission submission, JPlagOptions options) {
+        int minimumTokenMatch = options.getMinimumTokenMatch();
+        int windowSize = (minimumTokenMatch + 1) / 2;
+        int kGramLength = minimumTokenMatch - windowSize + 1;
+        return winnow(KGramHashing.hashMatchableKGrams(submission, options.hasBaseCode(), kGramLength), windowSize);
+    }
+
+    /**
+     * Finds the submissions that share enough fingerprints with a submission. Only the submissions after it are considered,
+     * thus each pair is found exactly once when querying all submissions.
+     * @param index is the index of the submission in the list of indexed submissions.
+     * @param minimumSharedFingerprints is the number of fingerprints the submissions need to share.
+     * @return the ascending indices of the found submissions.
+     */
+    public int[] findCandidates(int index, int minimumSharedFingerprints) {
+        long[] fingerprints = new long[submissionStarts[index + 1] - submissionStarts[index]];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = fingerprintMap.getHash(submissionStarts[index] + i);
+        }
+        return findCandidates(fingerprints, submissionStarts[index + 1], minimumSharedFingerprints);
+    }
+
+    /**
+     * Finds the indexed submissions that share enough fingerprints with a submission that is not indexed.
+     * @param fingerprints are the fingerprints of the submission, see {@link #fingerprintsOf(Submission, JPlagOptions)}.
+     * @param minimumSharedFingerprints is the number of fingerprints the submissions need to share.
+     * @return the ascending indices of the found submissions.
+     */
+    public int[] findCandidates(long[] fingerprints, int minimumSharedFingerprints) {
+        return findCandidates(fingerprints, 0, minimumSharedFingerprints);
+    }
+
+    /**
+     * @param firstPosition is the first position of the fingerprints that are considered.
+     */
+    private int[] findCandidates(long[] fingerprints, int firstPosition, int minimumSharedFingerprints) {
+        int[] sharing = new int[16];
+        int count = 0;
+        for (long fingerprint : fingerprints) {
+            for (int i = fingerprintMap.start(fingerprint); i < fingerprintMap.end(fingerprint); i++) {
+                int otherPosition = fingerprintMap.positionAt(i);
+                if (otherPosition >= firstPosition && fingerprintMap.getHash(otherPosition) == fingerprint) {
+                    if (count == sharing.length) {
+                        sharing = Arrays.copyOf(sharing, 2 * count);
+                    }
+                    sharing[count++] = submissionOf(otherPosition);
+                }
+            }
+        }
+        Arrays.sort(sharing, 0, count);
+
+        // each shared fingerprint results in one entry, as the fingerprints of a submission are distinct:
+        int[] candidates = new int[count];
+        int candidateCount = 0;
+        int start = 0;
+        while (start < count) {
+            int end = start + 1;
+            while (end < count && sharing[end] == sharing[start]) {
+                end++;
+            }
+            if (end - start >= minimumSharedFingerprints) {
+                candidates[candidateCount++] = sharing[start];
+            }
+            start = end;
+        }
+        return Arrays.copyOf(candidates, candidateCount);
+    }
+
+    private int submissionOf(int position) {
+        int index = Arrays.binarySearch(submissionStarts, position);
+        if (index < 0) {
+            return -index - 2; // insertion point minus one
+        }
+        while (submissionStarts[index + 1] == position) { // skip submissions without fingerprints
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Selects the minimal hash of each window of consecutive k-gram hashes.
+     * @return the distinct selected hashes.
+     */
+    private static long[] winnow(long[] kGramHashes, int windowSize) {
+        int windowCount = kGramHashes.length - windowSize + 1;
+        if (windowCount <= 0) {
+            return new long[0]; // too short for any match
+        }
+        long[] selected = new long[windowCount];
+        int[] window = new int[kGramHashes.length]; // monotonic queue of positions with ascending hashes
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < kGramHashes.length; i++) {
+            while (tail > head && kGramHashes[window[tail - 1]] >= kGramHashes[i]) {
+                tail--;
+            }
+            window[tail++] = i;
+            if (window[head] <= i - windowSize) {
+                head++;
+            }
+            if (i >= windowSize - 1) {
+                selected[i - windowSize + 1] = kGramHashes[window[head]];
+            }
+        }
+        return Arrays.stream(selected).sorted().distinct().toArray();
+    }
+}
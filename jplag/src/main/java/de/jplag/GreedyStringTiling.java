@@ -1,10 +1,12 @@
 package de.jplag;
 
-import static de.jplag.TokenConstants.FILE_END;
-import static de.jplag.TokenConstants.SEPARATOR_TOKEN;
-
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.stream.Stream;
 
 import de.jplag.options.JPlagOptions;
 
@@ -12,118 +14,109 @@ import de.jplag.options.JPlagOptions;
  * This class implements the Greedy String Tiling algorithm as introduced by Michael Wise. However, it is very specific
  * to the classes {@link TokenList}, {@link Token}, and {@link Match}. While this class was reworked, it still contains
  * some quirks from the initial version.
+ * <p>
+ * Before comparing, the submissions need to be indexed via {@link #createIndices(SubmissionSet)}. The comparison does
+ * not modify the compared submissions, as it only reads their immutable index and the marks of a comparison are stored
+ * in a {@link ComparisonScratch} of the comparing thread. Thus, the same submission can be compared concurrently.
+ * </p>
  * @see <a href=
  * "https://www.researchgate.net/publication/262763983_String_Similarity_via_Greedy_String_Tiling_and_Running_Karp-Rabin_Matching">
  * String Similarity via Greedy String Tiling and Running Karp−Rabin Matching </a>
  */
-public class GreedyStringTiling {
-
-    private final JPlagOptions options;
+public class GreedyStringTiling extends AbstractMatchingEngine {
+    private static final int INITIAL_SEARCH_LENGTH = 20;
+    private static final long HASH_BASE = 0x9E3779B97F4A7C15L; // odd, thus invertible modulo 2^64
+    private static final long NO_HASH = -1;
 
-    public GreedyStringTiling(JPlagOptions options) {
-        this.options = options;
+    public GreedyStringTiling(JPlagOptions options, ComparisonStatistics statistics) {
+        super(options, statistics);
     }
 
     /**
-     * Creating hashes in linear time. The hash-code will be written in every Token for the next &lt;hashLength&gt; token
-     * (includes the Token itself).
-     * @param tokenList contains the tokens.
-     * @param hashLength is the hash length (condition: 1 &lt; hashLength &lt; 26)
-     * @param makeTable determines if a simple hash table is created in the structure.
+     * Creates the hash index of all valid submissions and of the base code in parallel, except for the submissions that are
+     * already indexed. The index of each submission is immutable and is only read by the comparisons, thus this needs to be
+     * called once before comparing.
+     * @param submissionSet contains the parsed submissions.
      */
-    public void createHashes(TokenList tokenList, int hashLength, boolean makeTable) {
-        // Here the upper boundary of the hash length is set.
-        // It is determined by the number of bits of the 'int' data type and the number of tokens.
-        if (hashLength < 1) {
-            hashLength = 1;
+    @Override
+    public void createIndices(SubmissionSet submissionSet) {
+        Stream<Submission> submissions = submissionSet.getSubmissions().stream();
+        if (submissionSet.hasBaseCode()) {
+            submissions = Stream.concat(submissions, Stream.of(submissionSet.getBaseCode()));
         }
-        hashLength = (hashLength < 26 ? hashLength : 25);
+        submissions.parallel().filter(submission -> submission.getHashIndex() == null).forEach(this::createIndex);
+    }
 
-        if (tokenList.size() < hashLength) {
-            return;
-        }
+    /**
+     * Creates the hash index of a single submission.
+     * @param submission is the parsed submission.
+     */
+    @Override
+    public void createIndex(Submission submission) {
+        submission.setHashIndex(createHashes(submission.getTokenList(), boundHashLength(options.getMinimumTokenMatch())));
+    }
 
-        int modulo = ((1 << 6) - 1);   // Modulo 64!
+    /**
+     * Creating hashes in linear time. The hash-code will be calculated for every token position for the next
+     * &lt;hashLength&gt; token (includes the token itself) and stored in the returned hash table. Positions whose hash
+     * range contains a file end or separator token do not receive a hash, as they can never be part of a match.
+     * <p>
+     * The hash is a 64-bit polynomial rolling hash over the token types. As the token types are small constants of the
+     * language, they are not folded, and the hash length is not limited.
+     * </p>
+     * @param tokenList contains the tokens.
+     * @param hashLength is the hash length (condition: 1 &lt;= hashLength)
+     * @return the hash table of the token list.
+     */
+    private TokenHashMap createHashes(TokenList tokenList, int hashLength) {
+        int[] types = tokenList.getTokenTypes();
 
-        int loops = tokenList.size() - hashLength;
-        tokenList.tokenHashes = (makeTable ? new TokenHashMap(3 * loops) : null);
-        int hash = 0;
+        int loops = Math.max(types.length - hashLength, 0);
+        long[] hashes = new long[loops];
+        long hash = 0;
         int hashedLength = 0;
-        for (int i = 0; i < hashLength; i++) {
-            hash = (2 * hash) + (tokenList.getToken(i).type & modulo);
+        for (int i = 0; i < Math.min(hashLength, types.length); i++) {
+            hash = (HASH_BASE * hash) + types[i];
             hashedLength++;
-            if (tokenList.getToken(i).isMarked()) {
+            if (isAlwaysMarked(types[i])) {
                 hashedLength = 0;
             }
         }
-        int factor = (hashLength != 1 ? (2 << (hashLength - 2)) : 1);
-
-        if (makeTable) {
-            for (int i = 0; i < loops; i++) {
-                if (hashedLength >= hashLength) {
-                    tokenList.getToken(i).setHash(hash);
-                    tokenList.tokenHashes.put(hash, i);   // add into hashtable
-                } else {
-                    tokenList.getToken(i).setHash(-1);
-                }
-                hash -= factor * (tokenList.getToken(i).type & modulo);
-                hash = (2 * hash) + (tokenList.getToken(i + hashLength).type & modulo);
-                if (tokenList.getToken(i + hashLength).isMarked()) {
-                    hashedLength = 0;
-                } else {
-                    hashedLength++;
-                }
-            }
-        } else {
-            for (int i = 0; i < loops; i++) {
-                tokenList.getToken(i).setHash((hashedLength >= hashLength) ? hash : -1);
-                hash -= factor * (tokenList.getToken(i).type & modulo);
-                hash = (2 * hash) + (tokenList.getToken(i + hashLength).type & modulo);
-                if (tokenList.getToken(i + hashLength).isMarked()) {
-                    hashedLength = 0;
-                } else {
-                    hashedLength++;
-                }
-            }
+        long factor = 1; // HASH_BASE^(hashLength - 1), the arithmetic is modulo 2^64
+        for (int i = 1; i < hashLength; i++) {
+            factor *= HASH_BASE;
         }
-        tokenList.hashLength = hashLength;
-    }
 
-    public final JPlagComparison compare(Submission firstSubmission, Submission secondSubmission) {
-        return swapAndCompare(firstSubmission, secondSubmission, false);
-    }
-
-    public final JPlagComparison compareWithBaseCode(Submission firstSubmission, Submission secondSubmission) {
-        return swapAndCompare(firstSubmission, secondSubmission, true);
-    }
-
-    private JPlagComparison swapAndCompare(Submission firstSubmission, Submission secondSubmission, boolean isBaseCodeComparison) {
-        Submission smallerSubmission;
-        Submission largerSubmission;
-        if (firstSubmission.getTokenList().size() > secondSubmission.getTokenList().size()) {
-            smallerSubmission = secondSubmission;
-            largerSubmission = firstSubmission;
-        } else {
-            smallerSubmission = firstSubmission;
-            largerSubmission = secondSubmission;
-        }
-        // if hashtable exists in first but not in second structure: flip around!
-        if (largerSubmission.getTokenList().tokenHashes == null && smallerSubmission.getTokenList().tokenHashes != null) {
-            Submission swap = smallerSubmission;
-            smallerSubmission = largerSubmission;
-            largerSubmission = swap;
+        for (int i = 0; i < loops; i++) {
+            hashes[i] = (hashedLength >= hashLength) ? (hash & Long.MAX_VALUE) : NO_HASH;
+            hash -= factor * types[i];
+            hash = (HASH_BASE * hash) + types[i + hashLength];
+            if (isAlwaysMarked(types[i + hashLength])) {
+                hashedLength = 0;
+            } else {
+                hashedLength++;
+            }
         }
-        return compare(smallerSubmission, largerSubmission, isBaseCodeComparison);
+        return new TokenHashMap(hashes, 3 * loops);
     }
 
     /**
      * Compares two submissions. FILE_END is used as pivot
+     * <p>
+     * Tiles are found with the running Karp-Rabin schedule: Each scan with a search length finds all maximal matches of at
+     * least that length, and only every (search length - hash length + 1)-th token of the first submission needs to be
+     * looked up. Starting with a large search length, the longest tiles are found with a few lookups. If a scan finds much
+     * longer matches, the search length is doubled; otherwise, the matches are marked and the search length is halved until
+     * it reaches the minimum token match. Marking replays the iterations of the original algorithm on the found matches
+     * (longest first, in the order of their positions), thus the resulting tiles are identical.
+     * </p>
      * @param firstSubmission is the submission with the smaller sequence.
      * @param secondSubmission is the submission with the larger sequence.
      * @param isBaseCodeComparison specifies whether one of the submissions is the base code.
      * @return the comparison results.
      */
-    private JPlagComparison compare(Submission firstSubmission, Submission secondSubmission, boolean isBaseCodeComparison) {
+    @Override
+    protected JPlagComparison compare(Submission firstSubmission, Submission secondSubmission, boolean isBaseCodeComparison) {
         // first and second refer to the list of tokens of the first and second submission:
         TokenList first = firstSubmission.getTokenList();
         TokenList second = secondSubmission.getTokenList();
@@ -136,99 +129,189 @@ public class GreedyStringTiling {
             return comparison;
         }
 
-        markTokens(first, isBaseCodeComparison);
-        markTokens(second, isBaseCodeComparison);
+        // the hot loop only works on the primitive arrays instead of the token objects:
+        ComparisonScratch currentScratch = prepareScratch(firstSubmission, secondSubmission, isBaseCodeComparison);
+        Tiling tiling = new Tiling(first.getTokenTypes(), second.getTokenTypes(), currentScratch.firstMarks(), currentScratch.secondMarks());
 
-        // create hashes:
-        if (first.hashLength != minimumTokenMatch) {
-            createHashes(first, minimumTokenMatch, isBaseCodeComparison); // don't make table if it is not a base code comparison
+        // get the (shared) hashes:
+        TokenHashMap firstHashes = getHashIndex(firstSubmission);
+        TokenHashMap secondHashes = getHashIndex(secondSubmission);
+        int hashLength = boundHashLength(minimumTokenMatch);
+
+        Queue<Match> queue = new PriorityQueue<>(Comparator.comparingInt(Match::length).reversed());
+        List<Match> tiles = currentScratch.matches();
+
+        int searchLength = Math.max(minimumTokenMatch, INITIAL_SEARCH_LENGTH);
+        while (true) {
+            int longestMatch = tiling.scanPattern(firstHashes, secondHashes, hashLength, searchLength, queue);
+            if (longestMatch > 2 * searchLength) {
+                searchLength = longestMatch; // double the search length, this avoids queueing many short matches
+                continue;
+            }
+            tiling.markArrays(comparison, queue, tiles, searchLength);
+            if (searchLength == minimumTokenMatch) {
+                break;
+            }
+            searchLength = Math.max(searchLength / 2, minimumTokenMatch);
         }
-        if (second.hashLength != minimumTokenMatch || second.tokenHashes == null) {
-            createHashes(second, minimumTokenMatch, true);
+        statistics.addFalsePositiveVerifications(tiling.falsePositives);
+        return comparison;
+    }
+
+    private TokenHashMap getHashIndex(Submission submission) {
+        TokenHashMap hashIndex = submission.getHashIndex();
+        if (hashIndex == null && submission.hasStoredTokens()) { // reclaimed under memory pressure
+            hashIndex = createHashes(submission.getTokenList(), boundHashLength(options.getMinimumTokenMatch()));
+            submission.setHashIndex(hashIndex);
+        } else if (hashIndex == null) {
+            throw new IllegalStateException("Submission " + submission.getName() + " was not indexed before the comparison!");
         }
+        return hashIndex;
+    }
 
-        List<Match> matches = new ArrayList<>();
+    private static int boundHashLength(int hashLength) {
+        return Math.max(hashLength, 1);
+    }
 
-        // start the black magic:
-        int maxMatch;
-        do {
-            maxMatch = minimumTokenMatch;
-            matches.clear();
-            for (int x = 0; x < first.size() - maxMatch; x++) {
-                List<Integer> hashedTokens = second.tokenHashes.get(first.getToken(x).getHash());
-                if (first.getToken(x).isMarked() || first.getToken(x).getHash() == -1) {
+    /**
+     * State of the tiling of a single comparison.
+     */
+    private static final class Tiling {
+        private final int[] firstTypes;
+        private final int[] secondTypes;
+        private final boolean[] firstMarks;
+        private final boolean[] secondMarks;
+        private long falsePositives;
+
+        Tiling(int[] firstTypes, int[] secondTypes, boolean[] firstMarks, boolean[] secondMarks) {
+            this.firstTypes = firstTypes;
+            this.secondTypes = secondTypes;
+            this.firstMarks = firstMarks;
+            this.secondMarks = secondMarks;
+        }
+
+        /**
+         * Finds all maximal matches of unmarked tokens with at least the search length and replaces the queue content with
+         * them. Each such match contains a complete hash window that starts at a multiple of the stride, thus only these
+         * positions of the first submission are looked up. A match is only queued from the first lookup position within it.
+         * @return the length of the longest match or zero if there is none.
+         */
+        int scanPattern(TokenHashMap firstHashes, TokenHashMap secondHashes, int hashLength, int searchLength, Queue<Match> queue) {
+            queue.clear();
+            int stride = searchLength - hashLength + 1;
+            int longestMatch = 0;
+            for (int x = 0; x < firstTypes.length; x += stride) {
+                long hash = firstHashes.getHash(x);
+                if (hash == NO_HASH || firstMarks[x]) {
                     continue;
                 }
-                inner: for (Integer y : hashedTokens) {
-                    if (second.getToken(y).isMarked() || maxMatch >= second.size() - y) { // >= because of pivots!
-                        continue;
+                inner: for (int index = secondHashes.start(hash), end = secondHashes.end(hash); index < end; index++) {
+                    int y = secondHashes.positionAt(index);
+                    if (secondHashes.getHash(y) != hash) {
+                        continue; // different hash in the same bucket
                     }
-
-                    int j, hx, hy;
-                    for (j = maxMatch - 1; j >= 0; j--) { // begins comparison from behind
-                        if (first.getToken(hx = x + j).type != second.getToken(hy = y + j).type || first.getToken(hx).isMarked()
-                                || second.getToken(hy).isMarked()) {
+                    for (int j = hashLength - 1; j >= 0; j--) { // begins comparison from behind
+                        if (firstTypes[x + j] != secondTypes[y + j]) {
+                            falsePositives++; // same hash, but different tokens
+                            continue inner;
+                        }
+                    }
+                    for (int j = hashLength - 1; j >= 0; j--) {
+                        if (firstMarks[x + j] || secondMarks[y + j]) {
                             continue inner;
                         }
                     }
 
-                    // expand match
-                    j = maxMatch;
-                    while (first.getToken(hx = x + j).type == second.getToken(hy = y + j).type && !first.getToken(hx).isMarked()
-                            && !second.getToken(hy).isMarked()) {
-                        j++;
+                    // expand match to the left, at most to the previous lookup position:
+                    int offset = 0;
+                    while (offset < stride && x > offset && y > offset && isMatching(x - offset - 1, y - offset - 1)) {
+                        offset++;
+                    }
+                    if (offset == stride) {
+                        continue; // already found from the previous lookup position
                     }
 
-                    if (j > maxMatch && !isBaseCodeComparison || j != maxMatch && isBaseCodeComparison) {  // new biggest match? -> delete current
-                                                                                                           // smaller
-                        matches.clear();
-                        maxMatch = j;
+                    // expand match to the right:
+                    int length = offset + hashLength;
+                    while (isMatching(x - offset + length, y - offset + length)) { // terminates because of the pivots
+                        length++;
+                    }
+                    if (length >= searchLength) {
+                        queue.add(new Match(x - offset, y - offset, length));
+                        longestMatch = Math.max(longestMatch, length);
                     }
-                    addMatchIfNotOverlapping(matches, x, y, j);
                 }
             }
-            for (int i = matches.size() - 1; i >= 0; i--) {
-                int x = matches.get(i).startOfFirst();  // Beginning of/in sequence A
-                int y = matches.get(i).startOfSecond();  // Beginning of/in sequence B
-                comparison.addMatch(x, y, matches.get(i).length());
-                // in order that "Match" will be newly build (because reusing)
-                for (int j = matches.get(i).length(); j > 0; j--) {
-                    first.getToken(x).setMarked(true); // mark all Tokens!
-                    second.getToken(y).setMarked(true);
-                    if (isBaseCodeComparison) {
-                        first.getToken(x).setBasecode(true);
-                        second.getToken(y).setBasecode(true);
+            return longestMatch;
+        }
+
+        /**
+         * Marks the queued matches like the iterations of the original algorithm, as long as they are not shorter than the
+         * search length: Each iteration takes all unmarked matches of maximal length and adds them in the order of their
+         * positions, if they do not overlap with a previously added match of the iteration. Matches that were partially marked
+         * in the meantime are split into their unmarked parts.
+         */
+        void markArrays(JPlagComparison comparison, Queue<Match> queue, List<Match> tiles, int searchLength) {
+            List<Match> candidates = new ArrayList<>();
+            while (true) {
+                candidates.clear();
+                int maxMatch = searchLength;
+                while (!queue.isEmpty() && queue.peek().length() >= maxMatch) {
+                    Match match = queue.poll();
+                    if (isUnmarked(match)) {
+                        maxMatch = match.length();
+                        candidates.add(match);
+                    } else {
+                        splitUnmarked(match, searchLength, queue);
                     }
-                    x++;
-                    y++;
                 }
-            }
+                if (candidates.isEmpty()) {
+                    return;
+                }
 
-        } while (maxMatch != minimumTokenMatch);
+                // as all candidates have the same length, a candidate overlaps a tile if its first or last token is marked:
+                candidates.sort(Comparator.comparingInt(Match::startOfFirst).thenComparingInt(Match::startOfSecond));
+                tiles.clear();
+                for (Match candidate : candidates) {
+                    int x = candidate.startOfFirst();
+                    int y = candidate.startOfSecond();
+                    int last = candidate.length() - 1;
+                    if (firstMarks[x] || firstMarks[x + last] || secondMarks[y] || secondMarks[y + last]) {
+                        queue.add(candidate); // will be split into its unmarked parts
+                        continue;
+                    }
+                    Arrays.fill(firstMarks, x, x + candidate.length(), true);
+                    Arrays.fill(secondMarks, y, y + candidate.length(), true);
+                    tiles.add(candidate);
+                }
+                for (int i = tiles.size() - 1; i >= 0; i--) {
+                    comparison.addMatch(tiles.get(i).startOfFirst(), tiles.get(i).startOfSecond(), tiles.get(i).length());
+                }
+            }
+        }
 
-        return comparison;
-    }
+        private boolean isMatching(int x, int y) {
+            return firstTypes[x] == secondTypes[y] && !firstMarks[x] && !secondMarks[y];
+        }
 
-    private void addMatchIfNotOverlapping(List<Match> matches, int startA, int startB, int length) {
-        for (int i = matches.size() - 1; i >= 0; i--) { // starting at the end is better(?)
-            if (matches.get(i).overlap(startA, startB, length)) {
-                return; // no overlaps allowed!
+        private boolean isUnmarked(Match match) {
+            for (int i = 0; i < match.length(); i++) {
+                if (firstMarks[match.startOfFirst() + i] || secondMarks[match.startOfSecond() + i]) {
+                    return false;
+                }
             }
+            return true;
         }
-        matches.add(new Match(startA, startB, length));
-    }
 
-    /**
-     * Disable finding a match at separator tokens and basecode matches for non-basecode comparisons.
-     * @param tokenList Tokens to mark.
-     * @param isBaseCodeComparison Whether the {@link Token#isBasecode()} matches should be enabled for matching.
-     */
-    private void markTokens(TokenList tokenList, boolean isBaseCodeComparison) {
-        for (Token token : tokenList.allTokens()) {
-            if (isBaseCodeComparison) {
-                token.setMarked(token.type == FILE_END || token.type == SEPARATOR_TOKEN);
-            } else {
-                token.setMarked(token.type == FILE_END || token.type == SEPARATOR_TOKEN || (token.isBasecode() && options.hasBaseCode()));
+        private void splitUnmarked(Match match, int minimumLength, Queue<Match> queue) {
+            int start = 0;
+            for (int i = 0; i <= match.length(); i++) {
+                if (i == match.length() || firstMarks[match.startOfFirst() + i] || secondMarks[match.startOfSecond() + i]) {
+                    if (i - start >= minimumLength) {
+                        queue.add(new Match(match.startOfFirst() + start, match.startOfSecond() + start, i - start));
+                    }
+                    start = i + 1;
+                }
             }
         }
     }
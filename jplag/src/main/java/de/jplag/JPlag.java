@@ -5,22 +5,38 @@ import static de.jplag.options.Verbosity.LONG;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.jplag.clustering.ClusteringFactory;
+import de.jplag.exceptions.ArchiveIndexException;
+import de.jplag.exceptions.BasecodeException;
 import de.jplag.exceptions.ExitException;
 import de.jplag.exceptions.SubmissionException;
 import de.jplag.options.JPlagOptions;
 import de.jplag.strategy.ComparisonMode;
 import de.jplag.strategy.ComparisonStrategy;
+import de.jplag.strategy.MinHashComparisonStrategy;
 import de.jplag.strategy.NormalComparisonStrategy;
 import de.jplag.strategy.ParallelComparisonStrategy;
+import de.jplag.strategy.PipelinedComparisonStrategy;
+import de.jplag.strategy.WinnowingComparisonStrategy;
 
 /**
  * This class coordinates the whole errorConsumer flow.
@@ -31,8 +47,6 @@ public class JPlag {
     private final JPlagOptions options;
 
     private final Language language;
-    private final ComparisonStrategy comparisonStrategy;
-    private final GreedyStringTiling coreAlgorithm; // Contains the comparison logic.
     private final Set<String> excludedFileNames;
 
     /**
@@ -41,11 +55,13 @@ public class JPlag {
      */
     public JPlag(JPlagOptions options) {
         this.options = options;
-        coreAlgorithm = new GreedyStringTiling(options);
         language = initializeLanguage(this.options);
-        comparisonStrategy = initializeComparisonStrategy(options.getComparisonMode());
         excludedFileNames = Optional.ofNullable(this.options.getExclusionFileName()).map(this::readExclusionFile).orElse(Collections.emptySet());
         options.setExcludedFiles(excludedFileNames); // store for report
+        if (options.isMetricsOnly() && options.getMaximumNumberOfComparisons() == -1) {
+            logger.warn("The metrics-only mode needs a limited number of shown comparisons, keeping the matches of all comparisons instead");
+            options.setMetricsOnly(false);
+        }
     }
 
     /**
@@ -74,33 +90,183 @@ public class JPlag {
      * @throws ExitException if the JPlag exits preemptively.
      */
     public JPlagResult run() throws ExitException {
-        // Parse and validate submissions.
-        SubmissionSetBuilder builder = new SubmissionSetBuilder(language, options, excludedFileNames);
-        SubmissionSet submissionSet = builder.buildSubmissionSet();
-
-        if (submissionSet.hasBaseCode()) {
-            coreAlgorithm.createHashes(submissionSet.getBaseCode().getTokenList(), options.getMinimumTokenMatch(), true);
+        ComparisonStatistics statistics = new ComparisonStatistics();
+        MatchingEngine coreAlgorithm = initializeMatchingEngine(options.getMatchingAlgorithm(), statistics); // Contains the comparison logic.
+        CachingMatchingEngine cachingEngine = null;
+        if (options.getResultCacheDirectory() != null) {
+            cachingEngine = new CachingMatchingEngine(coreAlgorithm, options, statistics);
+            coreAlgorithm = cachingEngine;
         }
+        ComparisonStrategy comparisonStrategy = initializeComparisonStrategy(options.getComparisonMode(), coreAlgorithm, statistics);
+
+        // Parse and validate submissions, some strategies start comparing while parsing.
+        SubmissionSetBuilder builder = new SubmissionSetBuilder(language, options, excludedFileNames);
+        SubmissionSet submissionSet = builder.buildSubmissionSet(comparisonStrategy.getParsingListener().orElse(null));
 
         int submissionCount = submissionSet.numberOfSubmissions();
         if (submissionCount < 2) {
             throw new SubmissionException("Not enough valid submissions! (found " + submissionCount + " valid submissions)");
         }
 
+        // Index valid submissions that were not indexed while parsing.
+        coreAlgorithm.createIndices(submissionSet);
+
         // Compare valid submissions.
         JPlagResult result = comparisonStrategy.compareSubmissions(submissionSet);
-        if (logger.isInfoEnabled())
+        result.setStatistics(statistics);
+        if (cachingEngine != null) {
+            cachingEngine.save();
+            logger.info("Result cache: {} hits, {} misses", statistics.getCachedComparisons(), statistics.getUncachedComparisons());
+        }
+        if (logger.isInfoEnabled()) {
             logger.info("Total time for comparing submissions: {}", TimeUtil.formatDuration(result.getDuration()));
+            logger.info("False positive hash matches: {}", statistics.getFalsePositiveVerifications());
+            logger.info("Comparisons skipped below the similarity threshold: {}", statistics.getSkippedComparisons());
+            logger.info("Comparisons avoided by the candidate selection: {}", statistics.getAvoidedComparisons());
+        }
+
+        result.setClusteringResult(
+                ClusteringFactory.getClusteringsOfSimilarities(result.getClusteringSimilarities(), options.getClusteringOptions()));
+
+        return result;
+    }
+
+    /**
+     * Builds the index of an archive from the submissions of the root directories, which allows comparing other submissions
+     * against the archive with {@link #query(ArchiveIndex)}.
+     * @param directory is the directory of the index, an existing index is replaced.
+     * @return the index, which needs to be closed after use.
+     * @throws ExitException if the submissions cannot be parsed or the index cannot be written.
+     */
+    public ArchiveIndex buildArchiveIndex(String directory) throws ExitException {
+        checkArchiveOptions();
+        SubmissionSet archive = new SubmissionSetBuilder(language, options, excludedFileNames).buildSubmissionSet();
+        try {
+            return ArchiveIndex.build(archive, options, Path.of(directory));
+        } catch (IOException | InvalidPathException exception) {
+            throw new ArchiveIndexException("Could not write the archive index " + directory + ": " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Loads the index of an archive that was built with {@link #buildArchiveIndex(String)}.
+     * @param directory is the directory of the index.
+     * @return the index, which needs to be closed after use.
+     * @throws ExitException if the index cannot be read or was built with another frontend or other options.
+     */
+    public ArchiveIndex loadArchiveIndex(String directory) throws ExitException {
+        try {
+            return ArchiveIndex.load(Path.of(directory), options);
+        } catch (IOException | InvalidPathException exception) {
+            throw new ArchiveIndexException("Could not read the archive index " + directory + ": " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Compares the submissions of the root directories against an archive. Only the archive is needed as the index, thus
+     * only the compared submissions are parsed. Each submission is compared with the archived submissions that share enough
+     * fingerprints with it (see {@link JPlagOptions#getMinimumSharedFingerprints()}), the compared submissions are not
+     * compared with each other. Each archived candidate is loaded and indexed once, and the candidates are compared in
+     * parallel with the configured parallelism.
+     * @param archive is the index of the archive.
+     * @return the results of the comparisons with the archived submissions.
+     * @throws ExitException if the submissions cannot be parsed or the archive cannot be read.
+     */
+    public JPlagResult query(ArchiveIndex archive) throws ExitException {
+        checkArchiveOptions();
+        long startTime = System.currentTimeMillis();
+        ComparisonStatistics statistics = new ComparisonStatistics();
+        MatchingEngine coreAlgorithm = initializeMatchingEngine(options.getMatchingAlgorithm(), statistics);
+
+        SubmissionSet submissionSet = new SubmissionSetBuilder(language, options, excludedFileNames).buildSubmissionSet();
+        if (submissionSet.numberOfSubmissions() < 1) {
+            throw new SubmissionException("No valid submissions to compare with the archive!");
+        }
+        coreAlgorithm.createIndices(submissionSet);
+
+        // each archived candidate is loaded and indexed once, and compared with all submissions it is a candidate for:
+        Map<Integer, List<Submission>> submissionsByCandidate = new TreeMap<>();
+        for (Submission submission : submissionSet.getSubmissions()) {
+            int[] candidates = archive.findCandidates(submission);
+            statistics.addAvoidedComparisons((long) archive.size() - candidates.length);
+            for (int candidate : candidates) {
+                submissionsByCandidate.computeIfAbsent(candidate, it -> new ArrayList<>()).add(submission);
+            }
+        }
 
-        result.setClusteringResult(ClusteringFactory.getClusterings(result.getAllComparisons(), options.getClusteringOptions()));
+        ComparisonSink sink = new ComparisonSink(options, coreAlgorithm);
+        ExecutorService executor = Executors.newFixedThreadPool(options.getParallelism());
+        try {
+            List<CompletableFuture<ComparisonSink.Accumulator>> candidateComparisons = submissionsByCandidate.entrySet().stream()
+                    .map(entry -> CompletableFuture.supplyAsync(
+                            () -> compareWithArchived(archive, entry.getKey(), entry.getValue(), coreAlgorithm, sink.createAccumulator()), executor))
+                    .toList();
+            candidateComparisons.forEach(comparisons -> sink.merge(comparisons.join()));
+        } catch (CompletionException exception) {
+            if (exception.getCause()instanceof UncheckedIOException ioException) {
+                throw new ArchiveIndexException("Could not read the archive index: " + ioException.getCause().getMessage(), ioException);
+            }
+            throw exception;
+        } finally {
+            executor.shutdown();
+        }
 
+        JPlagResult result = new JPlagResult(sink, submissionSet, System.currentTimeMillis() - startTime, options);
+        result.setStatistics(statistics);
+        logger.info("Compared {} submissions with the archive in {}", submissionSet.numberOfSubmissions(),
+                TimeUtil.formatDuration(result.getDuration()));
+        logger.info("Comparisons avoided by the candidate selection: {}", statistics.getAvoidedComparisons());
+        result.setClusteringResult(
+                ClusteringFactory.getClusteringsOfSimilarities(result.getClusteringSimilarities(), options.getClusteringOptions()));
         return result;
     }
 
-    private ComparisonStrategy initializeComparisonStrategy(final ComparisonMode comparisonMode) {
+    /**
+     * Loads and indexes an archived submission, and compares it with the submissions it is a candidate for.
+     * @return the accumulator with the comparisons that are similar enough.
+     */
+    private ComparisonSink.Accumulator compareWithArchived(ArchiveIndex archive, int candidate, List<Submission> submissions,
+            MatchingEngine matchingEngine, ComparisonSink.Accumulator accumulator) {
+        Submission archivedSubmission;
+        try {
+            archivedSubmission = archive.loadSubmission(candidate);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        matchingEngine.createIndex(archivedSubmission);
+        for (Submission submission : submissions) {
+            JPlagComparison comparison = matchingEngine.compare(submission, archivedSubmission);
+            if (options.getSimilarityMetric().isAboveThreshold(comparison, options.getSimilarityThreshold())) {
+                accumulator.add(comparison);
+            }
+        }
+        return accumulator;
+    }
+
+    private void checkArchiveOptions() throws ExitException {
+        if (options.hasBaseCode()) {
+            throw new BasecodeException("Base code is not supported for archives!");
+        }
+        if (!language.hasFixedTokenTypes()) {
+            throw new ArchiveIndexException("The language " + language.getName() + " is not supported for archives!");
+        }
+    }
+
+    private MatchingEngine initializeMatchingEngine(final MatchingAlgorithm matchingAlgorithm, ComparisonStatistics statistics) {
+        return switch (matchingAlgorithm) {
+            case GST -> new GreedyStringTiling(options, statistics);
+            case SUFFIX_ARRAY -> new SuffixArrayMatching(options, statistics);
+        };
+    }
+
+    private ComparisonStrategy initializeComparisonStrategy(final ComparisonMode comparisonMode, MatchingEngine coreAlgorithm,
+            ComparisonStatistics statistics) {
         return switch (comparisonMode) {
-            case NORMAL -> new NormalComparisonStrategy(options, coreAlgorithm);
-            case PARALLEL -> new ParallelComparisonStrategy(options, coreAlgorithm);
+            case NORMAL -> new NormalComparisonStrategy(options, coreAlgorithm, statistics);
+            case PARALLEL -> new ParallelComparisonStrategy(options, coreAlgorithm, statistics);
+            case MINHASH -> new MinHashComparisonStrategy(options, coreAlgorithm, statistics);
+            case WINNOWING -> new WinnowingComparisonStrategy(options, coreAlgorithm, statistics);
+            case PIPELINED -> new PipelinedComparisonStrategy(options, coreAlgorithm, statistics);
         };
     }
 
@@ -1,6 +1,7 @@
 package de.jplag;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -16,10 +17,16 @@ public class JPlagComparison { // FIXME TS: contains a lot of code duplication
 
     private final List<Match> matches;
 
+    // indices of the matches sorted by their start in each submission, allows overlap checks via binary search:
+    private int[] matchesByFirst;
+    private int[] matchesBySecond;
+
     public JPlagComparison(Submission firstSubmission, Submission secondSubmission) {
         this.firstSubmission = firstSubmission;
         this.secondSubmission = secondSubmission;
         matches = new ArrayList<>();
+        matchesByFirst = new int[0];
+        matchesBySecond = new int[0];
     }
 
     /**
@@ -27,14 +34,56 @@ public class JPlagComparison { // FIXME TS: contains a lot of code duplication
      * @see Match#Match(int, int, int)
      */
     /* package-private */ final void addMatch(int startOfFirst, int startOfSecond, int length) {
-        for (Match match : matches) {
-            if (match.overlap(startOfFirst, startOfSecond, length)) {
-                return;
-            }
+        int positionInFirst = findPosition(matchesByFirst, true, startOfFirst, length);
+        int positionInSecond = positionInFirst < 0 ? -1 : findPosition(matchesBySecond, false, startOfSecond, length);
+        if (positionInSecond < 0) {
+            return;
         }
+        int size = matches.size();
+        matchesByFirst = insert(matchesByFirst, size, positionInFirst, size);
+        matchesBySecond = insert(matchesBySecond, size, positionInSecond, size);
         matches.add(new Match(startOfFirst, startOfSecond, length));
     }
 
+    /**
+     * Finds the position of a new match among the matches sorted by their start in one of the submissions. As the matches
+     * do not overlap, only the neighbors at that position can overlap with the new match.
+     * @return the position, or -1 if the new match overlaps with an existing match.
+     */
+    private int findPosition(int[] sortedMatches, boolean inFirst, int start, int length) {
+        int low = 0;
+        int high = matches.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (startOf(matches.get(sortedMatches[middle]), inFirst) < start) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low > 0) {
+            Match previous = matches.get(sortedMatches[low - 1]);
+            if (startOf(previous, inFirst) + previous.length() > start) {
+                return -1;
+            }
+        }
+        if (low < matches.size() && startOf(matches.get(sortedMatches[low]), inFirst) < start + length) {
+            return -1;
+        }
+        return low;
+    }
+
+    private static int startOf(Match match, boolean inFirst) {
+        return inFirst ? match.startOfFirst() : match.startOfSecond();
+    }
+
+    private static int[] insert(int[] sortedMatches, int size, int position, int matchIndex) {
+        int[] result = size == sortedMatches.length ? Arrays.copyOf(sortedMatches, Math.max(2 * size, 4)) : sortedMatches;
+        System.arraycopy(result, position, result, position + 1, size - position);
+        result[position] = matchIndex;
+        return result;
+    }
+
     @Override
     public boolean equals(Object other) {
         if (other == this) {
@@ -118,10 +167,7 @@ public class JPlagComparison { // FIXME TS: contains a lot of code duplication
      * @return Similarity in percent (what percentage of tokens across both submissions are matched).
      */
     public final float similarity() {
-        boolean subtractBaseCode = firstSubmission.hasBaseCodeMatches() && secondSubmission.hasBaseCodeMatches();
-        float sa = firstSubmission.getSimilarityDivisor(subtractBaseCode);
-        float sb = secondSubmission.getSimilarityDivisor(subtractBaseCode);
-        return (200 * getNumberOfMatchedTokens()) / (sa + sb);
+        return similarity(getNumberOfMatchedTokens(), firstSubmission, secondSubmission);
     }
 
     /**
@@ -129,8 +175,7 @@ public class JPlagComparison { // FIXME TS: contains a lot of code duplication
      * second).
      */
     public final float similarityOfFirst() {
-        int divisor = firstSubmission.getSimilarityDivisor(true);
-        return (divisor == 0 ? 0f : (getNumberOfMatchedTokens() * 100 / (float) divisor));
+        return similarityOf(getNumberOfMatchedTokens(), firstSubmission);
     }
 
     /**
@@ -138,8 +183,7 @@ public class JPlagComparison { // FIXME TS: contains a lot of code duplication
      * first).
      */
     public final float similarityOfSecond() {
-        int divisor = secondSubmission.getSimilarityDivisor(true);
-        return (divisor == 0 ? 0f : (getNumberOfMatchedTokens() * 100 / (float) divisor));
+        return similarityOf(getNumberOfMatchedTokens(), secondSubmission);
     }
 
     /**
@@ -163,6 +207,26 @@ public class JPlagComparison { // FIXME TS: contains a lot of code duplication
         return ((int) (secondBasecodeSimilarity() * ROUNDING_FACTOR)) / (float) ROUNDING_FACTOR;
     }
 
+    /**
+     * Calculates the similarity of two submissions for a given number of matched tokens.
+     * @see #similarity()
+     */
+    static float similarity(int matchedTokens, Submission firstSubmission, Submission secondSubmission) {
+        boolean subtractBaseCode = firstSubmission.hasBaseCodeMatches() && secondSubmission.hasBaseCodeMatches();
+        float sa = firstSubmission.getSimilarityDivisor(subtractBaseCode);
+        float sb = secondSubmission.getSimilarityDivisor(subtractBaseCode);
+        return (200 * matchedTokens) / (sa + sb);
+    }
+
+    /**
+     * Calculates the similarity of a submission for a given number of matched tokens.
+     * @see #similarityOfFirst()
+     */
+    static float similarityOf(int matchedTokens, Submission submission) {
+        int divisor = submission.getSimilarityDivisor(true);
+        return (divisor == 0 ? 0f : (matchedTokens * 100 / (float) divisor));
+    }
+
     @Override
     public String toString() {
         return firstSubmission.getName() + " <-> " + secondSubmission.getName();
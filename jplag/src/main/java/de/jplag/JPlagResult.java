@@ -1,9 +1,9 @@
 package de.jplag;
 
 import java.util.List;
-import java.util.function.Function;
 
 import de.jplag.clustering.ClusteringResult;
+import de.jplag.clustering.ComparisonSimilarity;
 import de.jplag.options.JPlagOptions;
 import de.jplag.options.SimilarityMetric;
 
@@ -12,7 +12,11 @@ import de.jplag.options.SimilarityMetric;
  */
 public class JPlagResult {
 
-    private List<JPlagComparison> comparisons; // comparisons whose similarity was about the specified threshold
+    private List<JPlagComparison> comparisons; // most similar retained comparisons, all of them once the sink is null
+
+    private ComparisonSink sink; // computes the retained comparisons on demand, null once all of them were computed
+
+    private int numberOfRetainedComparisons;
 
     private final SubmissionSet submissions;
 
@@ -22,36 +26,70 @@ public class JPlagResult {
 
     private final int[] similarityDistribution; // 10-element array representing the similarity distribution of the detected matches.
 
+    private final int[] maxSimilarityDistribution;
+
+    private final List<ComparisonSimilarity> clusteringSimilarities;
+
     private List<ClusteringResult<Submission>> clusteringResult;
-    private final int SIMILARITY_DISTRIBUTION_SIZE = 10;
+
+    private ComparisonStatistics statistics = new ComparisonStatistics();
 
     public JPlagResult(List<JPlagComparison> comparisons, SubmissionSet submissions, long durationInMillis, JPlagOptions options) {
-        this.comparisons = comparisons;
+        this(collect(comparisons, options), submissions, durationInMillis, options);
+    }
+
+    /**
+     * Creates the result from the comparisons collected by a sink. In the metrics-only mode, the matches of the retained
+     * comparisons are only recomputed when the comparisons are requested, and only for the requested ones.
+     * @param sink contains the retained comparisons and the similarity statistics of all comparisons.
+     * @param submissions is the submission set that contains both the valid submissions and the invalid ones.
+     * @param durationInMillis is the duration of the comparison in milliseconds.
+     * @param options are the options with which the JPlag run was configured.
+     */
+    public JPlagResult(ComparisonSink sink, SubmissionSet submissions, long durationInMillis, JPlagOptions options) {
+        this.sink = sink;
+        comparisons = List.of();
+        numberOfRetainedComparisons = sink.getNumberOfComparisons();
         this.submissions = submissions;
         this.durationInMillis = durationInMillis;
         this.options = options;
-        similarityDistribution = calculateSimilarityDistribution(comparisons);
-        comparisons.sort((first, second) -> Float.compare(second.similarity(), first.similarity())); // Sort by percentage (descending).
+        similarityDistribution = sink.getSimilarityDistribution();
+        maxSimilarityDistribution = sink.getMaxSimilarityDistribution();
+        clusteringSimilarities = sink.getClusteringSimilarities();
     }
 
     /**
-     * Drops elements from the comparison list to free memory. Note, that this affects the similarity distribution and is
-     * only meant to be used if you don't need the information about comparisons with lower match percentage anymore.
+     * Drops elements from the comparison list to free memory. Note, that this does not affect the similarity distributions
+     * and is only meant to be used if you don't need the information about comparisons with lower match percentage anymore.
      * @param limit the number of comparisons to keep in the list
      */
-    public void dropComparisons(int limit) {
+    public synchronized void dropComparisons(int limit) {
         this.comparisons = this.getComparisons(limit);
+        sink = null;
+        numberOfRetainedComparisons = comparisons.size();
     }
 
     public void setClusteringResult(List<ClusteringResult<Submission>> clustering) {
         this.clusteringResult = clustering;
     }
 
+    public void setStatistics(ComparisonStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return the statistics about the work that was done or avoided while comparing the submissions.
+     */
+    public ComparisonStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
-     * @return a list of all comparisons sorted by percentage (descending)
+     * @return a list of all comparisons sorted by percentage (descending). If only the shown comparisons are retained (see
+     * {@link JPlagOptions#isRetainOnlyShownComparisons()}), these are the most similar comparisons.
      */
     public List<JPlagComparison> getAllComparisons() {
-        return comparisons;
+        return getComparisons(-1);
     }
 
     /**
@@ -60,7 +98,13 @@ public class JPlagResult {
      * returned.
      * @return a list of comparisons sorted descending by percentage.
      */
-    public List<JPlagComparison> getComparisons(int numberOfComparisons) {
+    public synchronized List<JPlagComparison> getComparisons(int numberOfComparisons) {
+        if (sink != null && (numberOfComparisons == -1 || numberOfComparisons > comparisons.size())) {
+            comparisons = sink.getComparisons(numberOfComparisons); // sorted by percentage (descending)
+            if (numberOfComparisons == -1 || numberOfComparisons >= numberOfRetainedComparisons) {
+                sink = null; // all retained comparisons are computed
+            }
+        }
         if (numberOfComparisons == -1) {
             return comparisons;
         }
@@ -114,7 +158,7 @@ public class JPlagResult {
      * the same distribution as {@link JPlagResult#getSimilarityDistribution()}
      */
     public int[] getMaxSimilarityDistribution() {
-        return calculateDistributionFor(comparisons, (JPlagComparison::maximalSimilarity));
+        return maxSimilarityDistribution;
     }
 
     public List<ClusteringResult<Submission>> getClusteringResult() {
@@ -123,28 +167,20 @@ public class JPlagResult {
 
     @Override
     public String toString() {
-        return String.format("JPlagResult { comparisons: %d, duration: %d ms, language: %s, submissions: %d }", getAllComparisons().size(),
+        return String.format("JPlagResult { comparisons: %d, duration: %d ms, language: %s, submissions: %d }", numberOfRetainedComparisons,
                 getDuration(), getOptions().getLanguage().getName(), submissions.numberOfSubmissions());
     }
 
     /**
-     * Note: Before, comparisons with a similarity below the given threshold were also included in the similarity matrix.
+     * @return the similarities of all comparisons under the clustering metric, empty if clustering is disabled.
      */
-    private int[] calculateSimilarityDistribution(List<JPlagComparison> comparisons) {
-        return calculateDistributionFor(comparisons, JPlagComparison::similarity);
-    }
-
-    private int[] calculateDistributionFor(List<JPlagComparison> comparisons, Function<JPlagComparison, Float> similarityExtractor) {
-        int[] similarityDistribution = new int[SIMILARITY_DISTRIBUTION_SIZE];
-        int similarityDistributionBucketSize = 100 / SIMILARITY_DISTRIBUTION_SIZE;
-        for (JPlagComparison comparison : comparisons) {
-            float similarity = similarityExtractor.apply(comparison); // extract similarity in percent: 0f <= similarity <= 100f
-            int index = (int) (similarity / similarityDistributionBucketSize); // divide similarity by bucket size to find index of correct bucket.
-            index = Math.min(index, SIMILARITY_DISTRIBUTION_SIZE - 1);// index is out of bounds when similarity is 100%. decrease by one to count
-                                                                      // towards the highest value bucket
-            similarityDistribution[SIMILARITY_DISTRIBUTION_SIZE - 1 - index]++; // count comparison towards its determined bucket. bucket order is
-            // reversed, so that the highest value bucket has the lowest index
-        }
-        return similarityDistribution;
+    List<ComparisonSimilarity> getClusteringSimilarities() {
+        return clusteringSimilarities;
+    }
+
+    private static ComparisonSink collect(List<JPlagComparison> comparisons, JPlagOptions options) {
+        ComparisonSink sink = new ComparisonSink(options);
+        comparisons.forEach(sink::add);
+        return sink;
     }
 }
@@ -0,0 +1,52 @@
+package de.jplag;
+
+import java.util.Arrays;
+
+/**
+ * Hashes the token sequences of a fixed length (k-grams) of a submission with a polynomial rolling hash. Only the
+ * k-grams that can be part of a match are hashed, thus k-grams with separators or, if used, base code are skipped.
+ */
+final class KGramHashing {
+    private static final long HASH_BASE = 0x9E3779B97F4A7C15L;
+
+    private KGramHashing() {
+        // private constructor to prevent instantiation
+    }
+
+    /**
+     * Hashes the k-grams of a submission.
+     * @param submission is the submission, which needs to be compared with the base code beforehand if base code is used.
+     * @param withBaseCode specifies if k-grams with base code tokens are skipped.
+     * @param length is the length k of the k-grams.
+     * @return the non-negative hashes of all k-grams that can be part of a match, in the order of their positions.
+     */
+    static long[] hashMatchableKGrams(Submission submission, boolean withBaseCode, int length) {
+        int[] types = submission.getTokenList().getTokenTypes();
+        boolean[] baseCodeMarks = withBaseCode ? submission.getBaseCodeMarks() : null;
+        if (types.length < length) {
+            return new long[0];
+        }
+
+        long factor = 1; // HASH_BASE^(length - 1), removes the first token of the window
+        for (int i = 1; i < length; i++) {
+            factor *= HASH_BASE;
+        }
+        long[] hashes = new long[types.length - length + 1];
+        int count = 0;
+        long hash = 0;
+        int lastUnmatchable = -1; // last position of a token that cannot be part of a match
+        for (int i = 0; i < types.length; i++) {
+            if (i >= length) {
+                hash -= factor * types[i - length];
+            }
+            hash = hash * HASH_BASE + types[i];
+            if (AbstractMatchingEngine.isAlwaysMarked(types[i]) || (baseCodeMarks != null && baseCodeMarks[i])) {
+                lastUnmatchable = i;
+            }
+            if (i >= length - 1 && lastUnmatchable <= i - length) {
+                hashes[count++] = hash & Long.MAX_VALUE;
+            }
+        }
+        return count == hashes.length ? hashes : Arrays.copyOf(hashes, count);
+    }
+}
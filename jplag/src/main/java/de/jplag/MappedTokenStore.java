@@ -0,0 +1,185 @@
+package de.jplag;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores token lists in a memory-mapped file instead of the heap, which is intended for the old submissions of large
+ * archives. Each token list is stored in columns: the token types, the file ids, the lines, the columns, and the
+ * lengths, each as a contiguous range of integers. The stored token lists only keep a view on their columns and the
+ * names of their files, the tokens are created on demand. Thus, the operating system can page the columns in and out.
+ * The token types that are read for the comparisons are only softly cached on the heap, like the hash indices of the
+ * stored token lists, so the garbage collector can reclaim both under memory pressure.
+ * <p>
+ * The file is temporary and deleted when the store is closed, the mappings of the stored token lists stay valid. After
+ * closing, no more token lists can be stored.
+ * </p>
+ */
+final class MappedTokenStore implements Closeable {
+    private static final int COLUMNS = 5;
+    private static final int SEGMENT_SIZE = 1 << 28; // each mapping covers 256 MiB, thus large archives need few mappings
+
+    private final FileChannel channel;
+    private final Map<Integer, String> typeNames = new ConcurrentHashMap<>(); // shared, the token types are fixed
+    private MappedByteBuffer segment; // the mapping that new token lists are stored in, null if there is none yet
+    private long nextSegmentPosition;
+    private long storedBytes;
+
+    /**
+     * Creates a store with a new temporary file.
+     * @param directory is the directory of the file, which is created if it does not exist.
+     * @throws IOException if the file cannot be created.
+     */
+    MappedTokenStore(Path directory) throws IOException {
+        Path file = Files.createTempFile(Files.createDirectories(directory), "jplag-tokens", ".bin");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /**
+     * Copies a token list into the mapped file.
+     * @param tokens are the tokens to store.
+     * @return the stored token list, which does not keep any reference to the given tokens.
+     * @throws IOException if the file cannot be extended.
+     */
+    synchronized TokenList store(TokenList tokens) throws IOException {
+        int size = tokens.size();
+        long bytes = (long) COLUMNS * size * Integer.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Too many tokens to map: " + size);
+        }
+        if (segment == null || segment.remaining() < bytes) {
+            long segmentSize = Math.max(SEGMENT_SIZE, bytes);
+            segment = channel.map(MapMode.READ_WRITE, nextSegmentPosition, segmentSize);
+            nextSegmentPosition += segmentSize;
+        }
+
+        ByteBuffer region = segment.slice(segment.position(), (int) bytes).order(ByteOrder.nativeOrder());
+        segment.position(segment.position() + (int) bytes);
+        storedBytes += bytes;
+
+        Map<String, Integer> fileIds = new LinkedHashMap<>();
+        IntBuffer columns = region.asIntBuffer();
+        int index = 0;
+        for (Token token : tokens.allTokens()) {
+            typeNames.putIfAbsent(token.getType(), token.type2string());
+            columns.put(index, token.getType());
+            columns.put(size + index, fileIds.computeIfAbsent(token.getFile(), it -> fileIds.size()));
+            columns.put(2 * size + index, token.getLine());
+            columns.put(3 * size + index, token.getColumn());
+            columns.put(4 * size + index, token.getLength());
+            index++;
+        }
+        return new MappedTokenList(region, size, fileIds.keySet().toArray(String[]::new));
+    }
+
+    /**
+     * @return the number of bytes of all stored token lists.
+     */
+    synchronized long getStoredBytes() {
+        return storedBytes;
+    }
+
+    /**
+     * Deletes the file. The stored token lists can still be read.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Token list backed by its columns in the mapped file. It cannot be modified.
+     */
+    private final class MappedTokenList extends TokenList {
+        private final ByteBuffer region;
+        private final int size;
+        private final String[] files; // indexed by the file ids
+        private volatile SoftReference<int[]> tokenTypes = new SoftReference<>(null);
+
+        MappedTokenList(ByteBuffer region, int size, String[] files) {
+            this.region = region;
+            this.size = size;
+            this.files = files;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void addToken(Token token) {
+            throw new UnsupportedOperationException("Stored token lists cannot be modified");
+        }
+
+        @Override
+        public Collection<Token> allTokens() {
+            List<Token> tokens = new ArrayList<>(size);
+            for (int index = 0; index < size; index++) {
+                tokens.add(getToken(index));
+            }
+            return tokens;
+        }
+
+        @Override
+        public Token getToken(int index) {
+            if (index < 0 || index >= size) {
+                throw new IllegalArgumentException("Cannot access token with index " + index + ", there are only " + size + " tokens!");
+            }
+            int type = column(0, index);
+            return new MappedToken(type, files[column(1, index)], column(2, index), column(3, index), column(4, index), typeNames.get(type));
+        }
+
+        /**
+         * Returns the token types without creating the tokens. They are copied from the mapping only if the cached copy was
+         * reclaimed, which is not modified by the comparisons.
+         */
+        @Override
+        public int[] getTokenTypes() {
+            int[] types = tokenTypes.get();
+            if (types == null) {
+                types = new int[size];
+                region.asIntBuffer().get(0, types); // absolute bulk read, the region can be read concurrently
+                tokenTypes = new SoftReference<>(types);
+            }
+            return types;
+        }
+
+        private int column(int column, int index) {
+            return region.getInt((column * size + index) * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Token created from the columns of a stored token list, which keeps the string representation of its type.
+     */
+    private static final class MappedToken extends Token {
+        private final String typeName;
+
+        MappedToken(int type, String file, int line, int column, int length, String typeName) {
+            super(type, file, line, column, length);
+            this.typeName = typeName;
+        }
+
+        @Override
+        protected String type2string() {
+            return typeName;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package de.jplag;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * The matching algorithm determines which {@link MatchingEngine} is used to find the matches between two submissions.
+ * All algorithms produce the same matches.
+ */
+public enum MatchingAlgorithm {
+    GST("Greedy String Tiling with Karp-Rabin hashing"),
+    SUFFIX_ARRAY("Suffix array based tiling (for very large or repetitive submissions)");
+
+    private final String name;
+    private final String description;
+
+    MatchingAlgorithm(String description) {
+        this.description = description;
+        name = toString().toLowerCase();
+    }
+
+    /**
+     * @return the specifier for the matching algorithm.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The textual description of the matching algorithm.
+     * @return a description of the matching algorithm
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return a collections of all algorithm names.
+     */
+    public static Collection<String> allNames() {
+        return Arrays.stream(values()).map(MatchingAlgorithm::getName).toList();
+    }
+
+    /**
+     * Retrieves a matching algorithm from a specific name.
+     * @param name is that name.
+     * @return the optional algorithm or nothing if no name matches.
+     */
+    public static Optional<MatchingAlgorithm> fromName(String name) {
+        return Arrays.stream(values()).filter(it -> it.name.equals(name)).findFirst();
+    }
+}
@@ -0,0 +1,38 @@
+package de.jplag;
+
+/**
+ * Finds the matches between two submissions. The engine must be able to compare multiple submission pairs concurrently.
+ */
+public interface MatchingEngine {
+
+    /**
+     * Prepares the submissions for the comparison, for example by creating an index. This needs to be called once before
+     * comparing any submissions of the set.
+     * @param submissionSet contains the parsed submissions.
+     */
+    void createIndices(SubmissionSet submissionSet);
+
+    /**
+     * Prepares a single parsed submission for the comparison, which allows comparing it before the other submissions are
+     * parsed. {@link #createIndices(SubmissionSet)} skips submissions that were prepared this way.
+     * @param submission is the parsed submission.
+     */
+    void createIndex(Submission submission);
+
+    /**
+     * Compares two submissions.
+     * @param firstSubmission is the first submission.
+     * @param secondSubmission is the second submission.
+     * @return the comparison results, where the smaller submission is the first submission of the comparison.
+     */
+    JPlagComparison compare(Submission firstSubmission, Submission secondSubmission);
+
+    /**
+     * Compares a submission with the base code. In contrast to {@link #compare(Submission, Submission)}, the base code
+     * matches of the submissions are not excluded.
+     * @param submission is the submission.
+     * @param baseCodeSubmission is the base code.
+     * @return the comparison results, where the smaller submission is the first submission of the comparison.
+     */
+    JPlagComparison compareWithBaseCode(Submission submission, Submission baseCodeSubmission);
+}
@@ -0,0 +1,60 @@
+package de.jplag;
+
+import java.util.Arrays;
+
+import de.jplag.options.JPlagOptions;
+
+/**
+ * Creates MinHash signatures of submissions, which allow estimating the Jaccard similarity of the sets of token
+ * sequences (k-grams) of two submissions. The length of the k-grams is the minimum token match, thus every match of two
+ * submissions results in common k-grams. Token sequences that cannot be part of a match (because they contain
+ * separators or base code) are not part of the set.
+ */
+public class MinHashing {
+    private static final long SEED_INCREMENT = 0xBF58476D1CE4E5B9L;
+
+    private final JPlagOptions options;
+    private final int signatureLength;
+
+    /**
+     * Creates the MinHashing for the number of bands and rows of the options.
+     * @param options are the options of the comparison.
+     */
+    public MinHashing(JPlagOptions options) {
+        this.options = options;
+        signatureLength = options.getMinHashBands() * options.getMinHashRows();
+    }
+
+    /**
+     * Creates the signature of a submission. Two signatures agree at each index with the probability of the Jaccard
+     * similarity of the k-gram sets of their submissions.
+     * @param submission is the submission, which needs to be compared with the base code beforehand.
+     * @return the signature, or an empty array if the submission has no k-grams and thus cannot match any submission.
+     */
+    public long[] createSignature(Submission submission) {
+        long[] kGramHashes = KGramHashing.hashMatchableKGrams(submission, options.hasBaseCode(), options.getMinimumTokenMatch());
+        long[] kGrams = Arrays.stream(kGramHashes).sorted().distinct().toArray();
+        if (kGrams.length == 0) {
+            return kGrams;
+        }
+        long[] signature = new long[signatureLength];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (long kGram : kGrams) {
+            long seed = 0;
+            for (int i = 0; i < signatureLength; i++) {
+                seed += SEED_INCREMENT;
+                signature[i] = Math.min(signature[i], mix(kGram + seed) & Long.MAX_VALUE);
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Finalizer of SplitMix64, turns similar values into independent looking ones.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
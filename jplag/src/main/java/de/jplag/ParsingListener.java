@@ -0,0 +1,28 @@
+package de.jplag;
+
+import java.util.List;
+
+/**
+ * Receives the submissions of a {@link SubmissionSet} while they are parsed, which allows processing them before all
+ * submissions are parsed.
+ */
+public interface ParsingListener {
+
+    /**
+     * Called once before the submissions are parsed, after the base code was parsed.
+     * @param submissions are all submissions that will be parsed, in the order of the submission set.
+     * @param baseCode is the parsed base code, or null if there is none.
+     */
+    void parsingStarted(List<Submission> submissions, Submission baseCode);
+
+    /**
+     * Called for each valid submission as soon as it is parsed. Can be called concurrently for different submissions.
+     * @param submission is the parsed submission.
+     */
+    void submissionParsed(Submission submission);
+
+    /**
+     * Called once after all submissions were parsed, also if the parsing failed.
+     */
+    void parsingFinished();
+}
@@ -0,0 +1,110 @@
+package de.jplag;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.jplag.options.JPlagOptions;
+import de.jplag.options.SimilarityMetric;
+
+/**
+ * Provable upper bound for the similarity of two submissions, which allows skipping comparisons that cannot reach the
+ * similarity threshold. As tokens are only matched with tokens of the same type, the number of matched tokens cannot
+ * exceed the intersection of the token type histograms of both submissions. Tokens that are never matched (separators
+ * and, if a base code is used, base code matches) are not counted.
+ */
+public class SimilarityUpperBound {
+    private final JPlagOptions options;
+    private final Map<Submission, TokenHistogram> histograms;
+
+    /**
+     * Creates the bound for the similarity metric and threshold of the options.
+     * @param options are the options of the comparison.
+     */
+    public SimilarityUpperBound(JPlagOptions options) {
+        this.options = options;
+        histograms = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Checks if the comparison of two submissions cannot reach the similarity threshold. The histograms of the submissions
+     * are created on first use, thus the base code comparisons must be done beforehand.
+     * @param first is the first submission.
+     * @param second is the second submission.
+     * @return true if the similarity is guaranteed to be below the threshold.
+     */
+    public boolean isBelowThreshold(Submission first, Submission second) {
+        if (options.getSimilarityThreshold() <= 0) {
+            return false; // every comparison reaches the threshold
+        }
+        int matchedTokens = getHistogram(first).intersect(getHistogram(second));
+        return getSimilarity(matchedTokens, first, second) < options.getSimilarityThreshold();
+    }
+
+    /**
+     * Calculates the similarity according to the metric, as if the submissions had the given number of matched tokens. As
+     * all metrics increase monotonically with the number of matched tokens, this yields the upper bound.
+     */
+    private float getSimilarity(int matchedTokens, Submission first, Submission second) {
+        SimilarityMetric metric = options.getSimilarityMetric();
+        return switch (metric) {
+            case AVG -> JPlagComparison.similarity(matchedTokens, first, second);
+            case MIN -> Math.min(JPlagComparison.similarityOf(matchedTokens, first), JPlagComparison.similarityOf(matchedTokens, second));
+            case MAX -> Math.max(JPlagComparison.similarityOf(matchedTokens, first), JPlagComparison.similarityOf(matchedTokens, second));
+            case INTERSECTION -> matchedTokens;
+        };
+    }
+
+    private TokenHistogram getHistogram(Submission submission) {
+        return histograms.computeIfAbsent(submission, this::createHistogram);
+    }
+
+    private TokenHistogram createHistogram(Submission submission) {
+        int[] types = submission.getTokenList().getTokenTypes();
+        boolean[] baseCodeMarks = options.hasBaseCode() ? submission.getBaseCodeMarks() : null;
+        int[] matchableTypes = new int[types.length];
+        int size = 0;
+        for (int i = 0; i < types.length; i++) {
+            if (!AbstractMatchingEngine.isAlwaysMarked(types[i]) && (baseCodeMarks == null || !baseCodeMarks[i])) {
+                matchableTypes[size++] = types[i];
+            }
+        }
+        Arrays.sort(matchableTypes, 0, size);
+
+        // run-length encoding of the sorted types:
+        int distinct = 0;
+        int[] counts = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || matchableTypes[i] != matchableTypes[distinct - 1]) {
+                matchableTypes[distinct++] = matchableTypes[i];
+            }
+            counts[distinct - 1]++;
+        }
+        return new TokenHistogram(Arrays.copyOf(matchableTypes, distinct), Arrays.copyOf(counts, distinct));
+    }
+
+    /**
+     * Number of occurrences per token type.
+     * @param types are the token types in ascending order.
+     * @param counts are the numbers of occurrences of these types.
+     */
+    private record TokenHistogram(int[] types, int[] counts) {
+
+        /**
+         * @return the sum of the minimal counts of each type.
+         */
+        int intersect(TokenHistogram other) {
+            int intersection = 0;
+            for (int i = 0, j = 0; i < types.length && j < other.types.length;) {
+                if (types[i] < other.types[j]) {
+                    i++;
+                } else if (types[i] > other.types[j]) {
+                    j++;
+                } else {
+                    intersection += Math.min(counts[i++], other.counts[j++]);
+                }
+            }
+            return intersection;
+        }
+    }
+}
@@ -2,10 +2,13 @@ package de.jplag;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Objects;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +59,23 @@ public class Submission implements Comparable<Submission> {
      */
     private JPlagComparison baseCodeComparison;
 
+    /**
+     * Flags for all tokens that are part of a base code match, derived from the base code comparison.
+     */
+    private boolean[] baseCodeMarks;
+
+    /**
+     * Immutable hash index of the tokens, created after parsing.
+     */
+    private TokenHashMap hashIndex;
+
+    /**
+     * Hash index of stored tokens, which is only softly reachable as it can be created again from the stored tokens.
+     */
+    private volatile SoftReference<TokenHashMap> reclaimableHashIndex;
+
+    private boolean tokensStored;
+
     private final Language language;
 
     /**
@@ -175,20 +195,65 @@ public class Submission implements Comparable<Submission> {
     }
 
     /**
-     * Resets the base code flag for all tokens of this submission.
+     * Sets the base code comparison. The tokens of this submission that are part of its matches are flagged as base code.
+     * @param baseCodeComparison is submissions matches with the base code
      */
-    public void resetBaseCode() {
-        for (Token token : tokenList.allTokens()) {
-            token.setBasecode(false);
+    public void setBaseCodeComparison(JPlagComparison baseCodeComparison) {
+        this.baseCodeComparison = baseCodeComparison;
+        boolean isFirst = baseCodeComparison.getFirstSubmission() == this;
+        baseCodeMarks = new boolean[getNumberOfTokens()];
+        for (Match match : baseCodeComparison.getMatches()) {
+            int start = isFirst ? match.startOfFirst() : match.startOfSecond();
+            Arrays.fill(baseCodeMarks, start, start + match.length(), true);
         }
     }
 
     /**
-     * Sets the base code comparison
-     * @param baseCodeComparison is submissions matches with the base code
+     * @return the flags for all tokens that are part of a base code match, or null if there is no base code comparison.
      */
-    public void setBaseCodeComparison(JPlagComparison baseCodeComparison) {
-        this.baseCodeComparison = baseCodeComparison;
+    boolean[] getBaseCodeMarks() {
+        return baseCodeMarks;
+    }
+
+    /**
+     * @return the hash index of the tokens, or null if the submission was not indexed yet.
+     */
+    TokenHashMap getHashIndex() {
+        SoftReference<TokenHashMap> reference = reclaimableHashIndex;
+        return reference == null ? hashIndex : reference.get();
+    }
+
+    /**
+     * Sets the hash index of the tokens, which is used by the comparison. If the tokens are stored outside the heap, the
+     * index is only softly retained and thus may have to be created again.
+     * @param hashIndex is the immutable hash index.
+     */
+    void setHashIndex(TokenHashMap hashIndex) {
+        if (tokensStored) {
+            reclaimableHashIndex = new SoftReference<>(hashIndex);
+        } else {
+            this.hashIndex = hashIndex;
+        }
+    }
+
+    /**
+     * @return whether the tokens are stored outside the heap, which means the hash index can be reclaimed.
+     */
+    boolean hasStoredTokens() {
+        return tokensStored;
+    }
+
+    /**
+     * Replaces the tokens by the same tokens stored outside the heap.
+     * @param storedTokenList is the stored list of the tokens.
+     */
+    void setStoredTokenList(TokenList storedTokenList) {
+        tokenList = storedTokenList;
+        tokensStored = true;
+        if (hashIndex != null) {
+            reclaimableHashIndex = new SoftReference<>(hashIndex);
+            hashIndex = null;
+        }
     }
 
     /**
@@ -261,10 +326,15 @@ public class Submission implements Comparable<Submission> {
     }
 
     /**
-     * Parse files of the submission.
+     * Parse files of the submission with a specific instance of its language. Unless the language
+     * {@link Language#supportsConcurrentParsing() supports concurrent parsing}, concurrent parsing requires an instance per
+     * thread.
+     * @param language is the language instance, or null for the instance of the submission.
+     * @param tokenCache provides the tokens of unchanged submissions without parsing them and stores the tokens of parsed
+     * submissions, or null if the tokens are not cached.
      * @return Whether parsing was successful.
      */
-    /* package-private */ boolean parse(boolean debugParser) {
+    /* package-private */ boolean parse(boolean debugParser, Language language, TokenCache tokenCache) {
         if (files == null || files.isEmpty()) {
             logger.error("ERROR: nothing to parse for submission \"{}\"", name);
             tokenList = null;
@@ -273,18 +343,29 @@ public class Submission implements Comparable<Submission> {
         }
 
         String[] relativeFilePaths = getRelativeFilePaths(submissionRootFile, files);
+        Optional<String> cacheKey = tokenCache == null ? Optional.empty() : tokenCache.keyOf(files, relativeFilePaths);
+        Optional<TokenList> cachedTokens = cacheKey.flatMap(key -> tokenCache.load(key));
+        if (cachedTokens.isPresent()) {
+            logger.trace("Loaded the tokens of submission \"{}\" from the token cache", name);
+            tokenList = cachedTokens.get();
+            return true; // only valid submissions are cached
+        }
 
-        tokenList = language.parse(submissionRootFile, relativeFilePaths);
-        if (!language.hasErrors()) {
+        ParseResult result = (language == null ? this.language : language).parseFiles(submissionRootFile, relativeFilePaths);
+        logger.trace("Parsed submission \"{}\" in {} ms", name, result.duration().toMillis());
+        tokenList = result.tokens();
+        if (!result.hasErrors()) {
             if (tokenList.size() < 3) {
                 logger.error("Submission \"{}\" is too short!", name);
                 tokenList = null;
                 hasErrors = true; // invalidate submission
                 return false;
             }
+            cacheKey.ifPresent(key -> tokenCache.store(key, tokenList));
             return true;
         }
 
+        result.errorsPerFile().forEach((file, errors) -> logger.error("{} parser error(s) in file {} of submission \"{}\"", errors, file, name));
         tokenList = null;
         hasErrors = true; // invalidate submission
         if (debugParser) {
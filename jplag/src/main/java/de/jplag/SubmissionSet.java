@@ -1,7 +1,17 @@
 package de.jplag;
 
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -31,17 +41,33 @@ public class SubmissionSet {
     private final Submission baseCodeSubmission;
 
     private final JPlagOptions options;
+    private final ParsingListener parsingListener; // null if nobody is interested in the progress
+    private final TokenCache tokenCache; // null if the tokens are not cached
+    private final MappedTokenStore oldTokenStore; // null if the tokens of the old submissions stay on the heap
     private int errors = 0;
-    private String currentSubmissionName;
+    private volatile String currentSubmissionName;
 
     /**
      * @param submissions Submissions to check for plagiarism.
      * @param baseCode Base code submission if it exists or {@code null}.
      */
     public SubmissionSet(List<Submission> submissions, Submission baseCode, JPlagOptions options) throws ExitException {
+        this(submissions, baseCode, options, null);
+    }
+
+    /**
+     * @param submissions Submissions to check for plagiarism.
+     * @param baseCode Base code submission if it exists or {@code null}.
+     * @param parsingListener receives the submissions while they are parsed, or {@code null}.
+     */
+    public SubmissionSet(List<Submission> submissions, Submission baseCode, JPlagOptions options, ParsingListener parsingListener)
+            throws ExitException {
         this.allSubmissions = submissions;
         this.baseCodeSubmission = baseCode;
         this.options = options;
+        this.parsingListener = parsingListener;
+        tokenCache = createTokenCache();
+        oldTokenStore = createOldTokenStore();
         parseAllSubmissions();
         this.submissions = filterValidSubmissions();
         invalidSubmissions = filterInvalidSubmissions();
@@ -100,12 +126,20 @@ public class SubmissionSet {
 
     private void parseAllSubmissions() throws ExitException {
         try {
-            parseSubmissions(allSubmissions);
             if (baseCodeSubmission != null) {
                 parseBaseCodeSubmission(baseCodeSubmission);
             }
+            if (parsingListener != null) {
+                parsingListener.parsingStarted(allSubmissions, baseCodeSubmission);
+            }
+            parseSubmissions(allSubmissions);
         } catch (OutOfMemoryError exception) {
             throw new SubmissionException("Out of memory during parsing of submission \"" + currentSubmissionName + "\"", exception);
+        } finally {
+            if (parsingListener != null) {
+                parsingListener.parsingFinished();
+            }
+            closeOldTokenStore();
         }
     }
 
@@ -115,7 +149,7 @@ public class SubmissionSet {
     private void parseBaseCodeSubmission(Submission baseCode) throws BasecodeException {
         long startTime = System.currentTimeMillis();
         logger.info("----- Parsing basecode submission: " + baseCode.getName());
-        if (!baseCode.parse(options.isDebugParser())) {
+        if (!baseCode.parse(options.isDebugParser(), null, tokenCache)) {
             throw new BasecodeException("Could not successfully parse basecode submission!");
         } else if (baseCode.getNumberOfTokens() < options.getMinimumTokenMatch()) {
             throw new BasecodeException("Basecode submission contains fewer tokens than minimum match length allows!");
@@ -127,9 +161,10 @@ public class SubmissionSet {
     }
 
     /**
-     * Parse all given submissions.
+     * Parse all given submissions. With a parallelism greater than one, the submissions are parsed concurrently. The
+     * workers share the language instance if it supports concurrent parsing, otherwise each has its own instance.
      */
-    private void parseSubmissions(List<Submission> submissions) {
+    private void parseSubmissions(List<Submission> submissions) throws SubmissionException {
         if (submissions.isEmpty()) {
             logger.warn("No submissions to parse!");
             return;
@@ -137,37 +172,183 @@ public class SubmissionSet {
 
         long startTime = System.currentTimeMillis();
 
-        int tooShort = 0;
-        for (Submission submission : submissions) {
-            boolean ok;
+        List<ParsingOutcome> outcomes;
+        List<Language> languages = createLanguageInstances(Math.min(options.getParallelism(), submissions.size()));
+        if (languages.size() <= 1) {
+            outcomes = submissions.stream().map(submission -> parseSubmission(submission, null)).toList();
+        } else {
+            outcomes = parseInParallel(submissions, languages);
+        }
 
-            logger.trace("------ Parsing submission: " + submission.getName());
-            currentSubmissionName = submission.getName();
+        errors = (int) outcomes.stream().filter(it -> it == ParsingOutcome.ERROR).count();
+        int tooShort = (int) outcomes.stream().filter(it -> it == ParsingOutcome.TOO_SHORT).count();
+        int validSubmissions = submissions.size() - errors - tooShort;
+        logger.trace(validSubmissions + " submissions parsed successfully!");
+        logger.trace(errors + " parser error" + (errors != 1 ? "s!" : "!"));
+        logger.trace(tooShort + " too short submission" + (tooShort != 1 ? "s!" : "!"));
+        printDetails(submissions, startTime, tooShort);
+        if (tokenCache != null) {
+            logger.info("Token cache: {} hits, {} misses", tokenCache.getHits(), tokenCache.getMisses());
+        }
+    }
 
-            if (!(ok = submission.parse(options.isDebugParser()))) {
-                errors++;
+    /**
+     * Parses the submissions on a pool with one thread per language instance. Each parse takes an idle language instance
+     * and returns it afterwards, thus an instance is only used concurrently if it occurs multiple times.
+     */
+    private List<ParsingOutcome> parseInParallel(List<Submission> submissions, List<Language> languages) throws SubmissionException {
+        BlockingQueue<Language> idleLanguages = new ArrayBlockingQueue<>(languages.size(), false, languages);
+        ForkJoinPool pool = new ForkJoinPool(languages.size());
+        try {
+            List<Callable<ParsingOutcome>> tasks = submissions.stream().<Callable<ParsingOutcome>>map(submission -> () -> {
+                Language language = idleLanguages.take();
+                try {
+                    return parseSubmission(submission, language);
+                } finally {
+                    idleLanguages.add(language);
+                }
+            }).toList();
+            List<ParsingOutcome> outcomes = new ArrayList<>();
+            for (Future<ParsingOutcome> outcome : pool.invokeAll(tasks)) {
+                outcomes.add(outcome.get());
             }
+            return outcomes;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SubmissionException("Interrupted while parsing the submissions", exception);
+        } catch (ExecutionException exception) {
+            if (exception.getCause()instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (exception.getCause()instanceof Error error) {
+                throw error;
+            }
+            throw new SubmissionException("Could not parse the submissions", exception.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
 
-            if (submission.getTokenList() != null && submission.getNumberOfTokens() < options.getMinimumTokenMatch()) {
-                logger.error("Submission {} contains fewer tokens than minimum match length allows!", currentSubmissionName);
-                submission.setTokenList(null);
-                tooShort++;
-                ok = false;
-                submission.markAsErroneous();
+    /**
+     * Provides the language instances for the parsing workers. If the language supports concurrent parsing, all workers
+     * share its instance. Otherwise, each worker needs an independent instance, which requires a public no-argument
+     * constructor, which the languages need anyway to be loaded.
+     * @param count is the number of workers.
+     * @return the instances, or an empty list if the language cannot be instantiated.
+     */
+    private List<Language> createLanguageInstances(int count) {
+        Language language = options.getLanguage();
+        if (count <= 1 || language == null) {
+            return List.of();
+        }
+        if (language.supportsConcurrentParsing()) {
+            return Collections.nCopies(count, language);
+        }
+        List<Language> languages = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                languages.add(language.getClass().getConstructor().newInstance());
             }
+        } catch (ReflectiveOperationException exception) {
+            logger.warn("Cannot create instances of the language {}, parsing sequentially", language.getName());
+            return List.of();
+        }
+        return languages;
+    }
+
+    /**
+     * Creates the token cache if a cache directory is configured and the tokens of the language can be cached.
+     * @return the cache, or null if the tokens are not cached.
+     */
+    private TokenCache createTokenCache() {
+        String directory = options.getTokenCacheDirectory();
+        Language language = options.getLanguage();
+        if (directory == null || language == null) {
+            return null;
+        }
+        if (!language.hasFixedTokenTypes()) {
+            logger.warn("The tokens of the language {} cannot be cached, parsing all submissions", language.getName());
+            return null;
+        }
+        try {
+            return new TokenCache(Path.of(directory), language);
+        } catch (IOException | InvalidPathException exception) {
+            logger.warn("Cannot use the token cache directory {}, parsing all submissions: {}", directory, exception.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Creates the store for the tokens of the old submissions if a directory is configured.
+     * @return the store, or null if the tokens stay on the heap.
+     */
+    private MappedTokenStore createOldTokenStore() {
+        String directory = options.getOldTokenStoreDirectory();
+        if (directory == null) {
+            return null;
+        }
+        try {
+            return new MappedTokenStore(Path.of(directory));
+        } catch (IOException | InvalidPathException exception) {
+            logger.warn("Cannot use the token store directory {}, keeping the old submissions on the heap: {}", directory, exception.getMessage());
+            return null;
+        }
+    }
 
-            if (ok) {
-                logger.trace("OK");
-            } else {
-                logger.error("ERROR -> Submission {} removed", currentSubmissionName);
+    /**
+     * Moves the tokens of an old submission into the store. If that fails, they stay on the heap.
+     */
+    private void storeOldSubmission(Submission submission) {
+        try {
+            submission.setStoredTokenList(oldTokenStore.store(submission.getTokenList()));
+        } catch (IOException exception) {
+            logger.warn("Cannot store the tokens of submission {}, keeping them on the heap: {}", submission.getName(), exception.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the file of the token store after parsing, the stored tokens can still be read.
+     */
+    private void closeOldTokenStore() {
+        if (oldTokenStore != null) {
+            logger.info("Stored the tokens of the old submissions in {} MiB of mapped memory", oldTokenStore.getStoredBytes() >> 20);
+            try {
+                oldTokenStore.close();
+            } catch (IOException exception) {
+                logger.warn("Cannot delete the file of the token store: {}", exception.getMessage());
             }
         }
+    }
 
-        int validSubmissions = submissions.size() - errors - tooShort;
-        logger.trace(validSubmissions + " submissions parsed successfully!");
-        logger.trace(errors + " parser error" + (errors != 1 ? "s!" : "!"));
-        logger.trace(tooShort + " too short submission" + (tooShort != 1 ? "s!" : "!"));
-        printDetails(submissions, startTime, tooShort);
+    /**
+     * Parses a submission and invalidates it if it could not be parsed or if it is too short.
+     * @param language is the language instance to use, or null to use the language of the submission.
+     */
+    private ParsingOutcome parseSubmission(Submission submission, Language language) {
+        logger.trace("------ Parsing submission: " + submission.getName());
+        currentSubmissionName = submission.getName();
+
+        boolean debugParser = options.isDebugParser();
+        if (!submission.parse(debugParser, language, tokenCache)) {
+            logger.error("ERROR -> Submission {} removed", submission.getName());
+            return ParsingOutcome.ERROR;
+        }
+
+        if (submission.getNumberOfTokens() < options.getMinimumTokenMatch()) {
+            logger.error("Submission {} contains fewer tokens than minimum match length allows!", submission.getName());
+            submission.setTokenList(null);
+            submission.markAsErroneous();
+            logger.error("ERROR -> Submission {} removed", submission.getName());
+            return ParsingOutcome.TOO_SHORT;
+        }
+
+        logger.trace("OK");
+        if (oldTokenStore != null && !submission.isNew()) {
+            storeOldSubmission(submission);
+        }
+        if (parsingListener != null) {
+            parsingListener.submissionParsed(submission);
+        }
+        return ParsingOutcome.VALID;
     }
 
     private void printDetails(List<Submission> submissions, long startTime, int tooShort) {
@@ -183,4 +364,9 @@ public class SubmissionSet {
         logger.trace("Time per parsed submission: " + timePerSubmission + " msec");
     }
 
+    private enum ParsingOutcome {
+        VALID,
+        ERROR,
+        TOO_SHORT
+    }
 }
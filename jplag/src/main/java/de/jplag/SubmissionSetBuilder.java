@@ -53,6 +53,16 @@ public class SubmissionSetBuilder {
      * @throws ExitException if the directory cannot be read.
      */
     public SubmissionSet buildSubmissionSet() throws ExitException {
+        return buildSubmissionSet(null);
+    }
+
+    /**
+     * Builds a submission set for all submissions of a specific directory.
+     * @param parsingListener receives the submissions while they are parsed, or {@code null}.
+     * @return the newly built submission set.
+     * @throws ExitException if the directory cannot be read.
+     */
+    public SubmissionSet buildSubmissionSet(ParsingListener parsingListener) throws ExitException {
         Set<File> submissionDirectories = verifyRootDirectories(options.getSubmissionDirectories(), true);
         Set<File> oldSubmissionDirectories = verifyRootDirectories(options.getOldSubmissionDirectories(), false);
         checkForNonOverlappingRootDirectories(submissionDirectories, oldSubmissionDirectories);
@@ -76,7 +86,7 @@ public class SubmissionSetBuilder {
         // Merge everything in a submission set.
         List<Submission> submissions = new ArrayList<>(foundSubmissions.values());
 
-        return new SubmissionSet(submissions, baseCodeSubmission.orElse(null), options);
+        return new SubmissionSet(submissions, baseCodeSubmission.orElse(null), options, parsingListener);
     }
 
     /**
@@ -0,0 +1,318 @@
+package de.jplag;
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.jplag.options.JPlagOptions;
+
+/**
+ * Finds the same matches as the {@link GreedyStringTiling}, but uses a generalized suffix array with an LCP array
+ * (longest common prefix) over the token types of both submissions instead of hashing. Each iteration determines the
+ * length of the longest unmarked common sequence via a binary search over the suffix array and then tiles all matches
+ * of that length. Thus, the cost of an iteration does not depend on the number of candidates per hash value, which
+ * degrades the {@link GreedyStringTiling} for very large or repetitive submissions.
+ * <p>
+ * Marks are never part of the suffix array. Instead, every common prefix is limited by the number of unmarked tokens at
+ * its start. Therefore, the suffix array is built only once per comparison.
+ * </p>
+ */
+public class SuffixArrayMatching extends AbstractMatchingEngine {
+
+    public SuffixArrayMatching(JPlagOptions options, ComparisonStatistics statistics) {
+        super(options, statistics);
+    }
+
+    @Override
+    public void createIndices(SubmissionSet submissionSet) {
+        // The suffix array is specific to a submission pair, thus it is created per comparison.
+    }
+
+    @Override
+    public void createIndex(Submission submission) {
+        // The suffix array is specific to a submission pair, thus it is created per comparison.
+    }
+
+    @Override
+    protected JPlagComparison compare(Submission firstSubmission, Submission secondSubmission, boolean isBaseCodeComparison) {
+        JPlagComparison comparison = new JPlagComparison(firstSubmission, secondSubmission);
+        int minimumTokenMatch = options.getMinimumTokenMatch();
+        int[] firstTypes = firstSubmission.getTokenList().getTokenTypes();
+        int[] secondTypes = secondSubmission.getTokenList().getTokenTypes();
+
+        if (firstTypes.length <= minimumTokenMatch || secondTypes.length <= minimumTokenMatch) { // <= because of pivots!
+            return comparison;
+        }
+
+        ComparisonScratch currentScratch = prepareScratch(firstSubmission, secondSubmission, isBaseCodeComparison);
+        boolean[] firstMarks = currentScratch.firstMarks();
+        boolean[] secondMarks = currentScratch.secondMarks();
+        List<Match> matches = currentScratch.matches();
+
+        // positions of the second submission are shifted by the length of the first submission:
+        int[] sequence = new int[firstTypes.length + secondTypes.length];
+        System.arraycopy(firstTypes, 0, sequence, 0, firstTypes.length);
+        System.arraycopy(secondTypes, 0, sequence, firstTypes.length, secondTypes.length);
+        int[] suffixArray = buildSuffixArray(sequence);
+        int[] lcpArray = buildLcpArray(sequence, suffixArray);
+        int[] freeLengths = new int[sequence.length];
+
+        int maxMatch;
+        do {
+            updateFreeLengths(freeLengths, firstMarks, secondMarks, firstTypes.length);
+            maxMatch = findMaximalMatchLength(suffixArray, lcpArray, freeLengths, firstTypes.length, minimumTokenMatch);
+            if (maxMatch < minimumTokenMatch) {
+                break;
+            }
+            collectMatches(matches, suffixArray, lcpArray, freeLengths, firstTypes.length, maxMatch);
+            for (int i = matches.size() - 1; i >= 0; i--) { // same order as the greedy string tiling
+                Match match = matches.get(i);
+                comparison.addMatch(match.startOfFirst(), match.startOfSecond(), match.length());
+                Arrays.fill(firstMarks, match.startOfFirst(), match.startOfFirst() + match.length(), true);
+                Arrays.fill(secondMarks, match.startOfSecond(), match.startOfSecond() + match.length(), true);
+            }
+        } while (maxMatch != minimumTokenMatch);
+
+        return comparison;
+    }
+
+    /**
+     * Calculates the number of consecutive unmarked tokens starting at each position of the combined sequence.
+     */
+    private void updateFreeLengths(int[] freeLengths, boolean[] firstMarks, boolean[] secondMarks, int firstLength) {
+        int secondLength = freeLengths.length - firstLength;
+        for (int i = firstLength - 1, free = 0; i >= 0; i--) {
+            free = firstMarks[i] ? 0 : free + 1;
+            freeLengths[i] = free;
+        }
+        for (int i = secondLength - 1, free = 0; i >= 0; i--) {
+            free = secondMarks[i] ? 0 : free + 1;
+            freeLengths[firstLength + i] = free;
+        }
+    }
+
+    /**
+     * Determines the length of the longest unmarked sequence that occurs in both submissions via a binary search.
+     * @return the length or -1 if there is no such sequence of the minimum length.
+     */
+    private int findMaximalMatchLength(int[] suffixArray, int[] lcpArray, int[] freeLengths, int firstLength, int minimumLength) {
+        if (!hasMatchOfLength(suffixArray, lcpArray, freeLengths, firstLength, minimumLength)) {
+            return -1;
+        }
+        int lowerBound = minimumLength;
+        int upperBound = Math.min(maximum(freeLengths, 0, firstLength), maximum(freeLengths, firstLength, freeLengths.length));
+        while (lowerBound < upperBound) {
+            int length = (lowerBound + upperBound + 1) >>> 1;
+            if (hasMatchOfLength(suffixArray, lcpArray, freeLengths, firstLength, length)) {
+                lowerBound = length;
+            } else {
+                upperBound = length - 1;
+            }
+        }
+        return lowerBound;
+    }
+
+    /**
+     * Checks whether an unmarked sequence of a given length occurs in both submissions. This is the case if a range of the
+     * suffix array with a common prefix of that length contains unmarked suffixes of both submissions.
+     */
+    private boolean hasMatchOfLength(int[] suffixArray, int[] lcpArray, int[] freeLengths, int firstLength, int length) {
+        boolean hasFirst = false;
+        boolean hasSecond = false;
+        for (int i = 0; i < suffixArray.length; i++) {
+            if (lcpArray[i] < length) { // new range
+                hasFirst = false;
+                hasSecond = false;
+            }
+            int position = suffixArray[i];
+            if (freeLengths[position] >= length) {
+                if (position < firstLength) {
+                    hasFirst = true;
+                } else {
+                    hasSecond = true;
+                }
+                if (hasFirst && hasSecond) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects the non-overlapping matches of the maximal length in the same order as the greedy string tiling: The
+     * positions of the first submission are visited in ascending order, and each is matched with the lowest position of the
+     * second submission that does not overlap with a previous match.
+     */
+    private void collectMatches(List<Match> matches, int[] suffixArray, int[] lcpArray, int[] freeLengths, int firstLength, int length) {
+        int secondLength = freeLengths.length - firstLength;
+        int[] groupOfFirst = new int[firstLength]; // group of each position of the first submission, -1 for none
+        Arrays.fill(groupOfFirst, -1);
+        int[] candidates = new int[secondLength]; // positions of the second submission, grouped and sorted per group
+        int[] groupNext = new int[secondLength + 1];
+        int[] groupEnd = new int[secondLength + 1];
+        int groupCount = 0;
+        int candidateCount = 0;
+
+        // a group is a range of the suffix array, where all suffixes share the same prefix of the given length:
+        for (int start = 0, end; start < suffixArray.length; start = end) {
+            boolean hasFirst = false;
+            boolean hasSecond = false;
+            for (end = start; end < suffixArray.length && (end == start || lcpArray[end] >= length); end++) {
+                int position = suffixArray[end];
+                if (freeLengths[position] >= length) {
+                    hasFirst |= position < firstLength;
+                    hasSecond |= position >= firstLength;
+                }
+            }
+            if (hasFirst && hasSecond) {
+                groupNext[groupCount] = candidateCount;
+                for (int i = start; i < end; i++) {
+                    int position = suffixArray[i];
+                    if (freeLengths[position] >= length) {
+                        if (position < firstLength) {
+                            groupOfFirst[position] = groupCount;
+                        } else {
+                            candidates[candidateCount++] = position - firstLength;
+                        }
+                    }
+                }
+                Arrays.sort(candidates, groupNext[groupCount], candidateCount);
+                groupEnd[groupCount] = candidateCount;
+                groupCount++;
+            }
+        }
+
+        // as all matches have the same length, a candidate overlaps a match if its first or its last token is covered:
+        boolean[] covered = new boolean[secondLength];
+        int nextFreeFirst = 0;
+        matches.clear();
+        for (int x = 0; x < firstLength; x++) {
+            int group = groupOfFirst[x];
+            if (group < 0 || x < nextFreeFirst) {
+                continue;
+            }
+            int index = groupNext[group];
+            while (index < groupEnd[group] && (covered[candidates[index]] || covered[candidates[index] + length - 1])) {
+                index++;
+            }
+            groupNext[group] = index;
+            if (index < groupEnd[group]) {
+                int y = candidates[index];
+                matches.add(new Match(x, y, length));
+                Arrays.fill(covered, y, y + length, true);
+                nextFreeFirst = x + length;
+            }
+        }
+    }
+
+    private static int maximum(int[] values, int from, int to) {
+        int maximum = 0;
+        for (int i = from; i < to; i++) {
+            maximum = Math.max(maximum, values[i]);
+        }
+        return maximum;
+    }
+
+    /**
+     * Builds the suffix array via prefix doubling with counting sort in O(n log n).
+     * @param sequence is the sequence of token types.
+     * @return the start positions of all suffixes in lexicographic order.
+     */
+    static int[] buildSuffixArray(int[] sequence) {
+        int length = sequence.length;
+        int[] suffixArray = new int[length];
+        int[] order = new int[length];
+        int[] rank = new int[length];
+
+        // initial ranks are the compressed token types:
+        int[] distinctTypes = Arrays.stream(sequence).distinct().sorted().toArray();
+        for (int i = 0; i < length; i++) {
+            rank[i] = Arrays.binarySearch(distinctTypes, sequence[i]);
+            order[i] = i;
+        }
+        int rankCount = distinctTypes.length;
+        sortByRank(order, rank, rankCount, suffixArray);
+
+        for (int offset = 1; rankCount < length; offset <<= 1) {
+            // order by the rank of the second half, suffixes without a second half come first:
+            int orderIndex = 0;
+            for (int i = length - offset; i < length; i++) {
+                order[orderIndex++] = i;
+            }
+            for (int suffix : suffixArray) {
+                if (suffix >= offset) {
+                    order[orderIndex++] = suffix - offset;
+                }
+            }
+            sortByRank(order, rank, rankCount, suffixArray); // stable, thus ordered by both halves
+
+            int[] newRank = order; // reuse the array, the order is no longer needed
+            newRank[suffixArray[0]] = 0;
+            rankCount = 1;
+            for (int i = 1; i < length; i++) {
+                int current = suffixArray[i];
+                int previous = suffixArray[i - 1];
+                if (rank[current] != rank[previous] || rankAt(rank, current + offset) != rankAt(rank, previous + offset)) {
+                    rankCount++;
+                }
+                newRank[current] = rankCount - 1;
+            }
+            order = rank;
+            rank = newRank;
+        }
+        return suffixArray;
+    }
+
+    private static int rankAt(int[] rank, int position) {
+        return position < rank.length ? rank[position] : -1;
+    }
+
+    /**
+     * Stable counting sort of the positions by their rank.
+     */
+    private static void sortByRank(int[] positions, int[] rank, int rankCount, int[] result) {
+        int[] counts = new int[rankCount + 1];
+        for (int position : positions) {
+            counts[rank[position] + 1]++;
+        }
+        for (int i = 0; i < rankCount; i++) {
+            counts[i + 1] += counts[i];
+        }
+        for (int position : positions) {
+            result[counts[rank[position]]++] = position;
+        }
+    }
+
+    /**
+     * Builds the LCP array with the algorithm of Kasai et al. in O(n).
+     * @param sequence is the sequence of token types.
+     * @param suffixArray is the suffix array of the sequence.
+     * @return the length of the longest common prefix of each suffix and its predecessor in the suffix array, where the
+     * first entry is zero.
+     */
+    static int[] buildLcpArray(int[] sequence, int[] suffixArray) {
+        int length = sequence.length;
+        int[] inverse = new int[length];
+        for (int i = 0; i < length; i++) {
+            inverse[suffixArray[i]] = i;
+        }
+        int[] lcpArray = new int[length];
+        int commonLength = 0;
+        for (int position = 0; position < length; position++) {
+            if (inverse[position] == 0) {
+                commonLength = 0;
+                continue;
+            }
+            int previous = suffixArray[inverse[position] - 1];
+            while (position + commonLength < length && previous + commonLength < length
+                    && sequence[position + commonLength] == sequence[previous + commonLength]) {
+                commonLength++;
+            }
+            lcpArray[inverse[position]] = commonLength;
+            if (commonLength > 0) {
+                commonLength--;
+            }
+        }
+        return lcpArray;
+    }
+}
@@ -0,0 +1,319 @@
+package de.jplag;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent cache of the tokens of parsed submissions, which allows skipping the frontend for unchanged submissions in
+ * later runs. The cache is content-addressed: The key of a submission is a hash of the language identifier, the version
+ * of the frontend, and the relative path and content hash of each file. Thus, a changed file or frontend leads to a new
+ * key instead of a stale entry.
+ * <p>
+ * Each entry is a file that stores the tokens in a compact binary format: a table of the file names and a table of the
+ * token type names, followed by the tokens as variable-length integers. Entries are written to a temporary file and
+ * then moved into place, thus concurrent runs can share a cache directory.
+ * </p>
+ */
+final class TokenCache {
+    private static final Logger logger = LoggerFactory.getLogger(TokenCache.class);
+
+    private static final int MAGIC = 0x4A505443; // "JPTC"
+    private static final int FORMAT_VERSION = 1;
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Path directory;
+    private final byte[] languageKey; // identifier and version of the frontend
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Creates a cache for the tokens of a language.
+     * @param directory is the cache directory, which is created if it does not exist.
+     * @param language is the language, whose token types need to be fixed.
+     * @throws IOException if the directory cannot be created.
+     */
+    TokenCache(Path directory, Language language) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        languageKey = (language.getIdentifier() + '\0' + frontendVersion(language) + '\0' + FORMAT_VERSION).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Computes the key of the files of a submission.
+     * @param files are the files of the submission, in the order they are parsed.
+     * @param relativePaths are the paths of the files relative to the submission root, in the same order.
+     * @return the key, or nothing if a file cannot be read.
+     */
+    Optional<String> keyOf(Collection<File> files, String[] relativePaths) {
+        MessageDigest digest = createDigest();
+        digest.update(languageKey);
+        int index = 0;
+        for (File file : files) {
+            digest.update(relativePaths[index++].getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            try {
+                digest.update(contentHash(file));
+            } catch (IOException exception) {
+                logger.warn("Cannot hash {} for the token cache: {}", file, exception.getMessage());
+                return Optional.empty();
+            }
+        }
+        return Optional.of(toHex(digest.digest()));
+    }
+
+    /**
+     * Loads the tokens of a submission.
+     * @param key is the key of the submission.
+     * @return the cached tokens, or nothing if there is no readable entry for the key.
+     */
+    Optional<TokenList> load(String key) {
+        Path entry = entryOf(key);
+        if (Files.isRegularFile(entry)) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry), BUFFER_SIZE))) {
+                TokenList tokens = readTokens(input);
+                hits.incrementAndGet();
+                return Optional.of(tokens);
+            } catch (IOException | RuntimeException exception) {
+                logger.warn("Ignoring the unreadable token cache entry {}: {}", entry, exception.getMessage());
+            }
+        }
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * Stores the tokens of a submission. Failures are only logged, as the cache is optional.
+     * @param key is the key of the submission.
+     * @param tokens are the tokens of the submission.
+     */
+    void store(String key, TokenList tokens) {
+        Path entry = entryOf(key);
+        Path temporaryFile = null;
+        try {
+            Files.createDirectories(entry.getParent());
+            temporaryFile = Files.createTempFile(entry.getParent(), key, ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile), BUFFER_SIZE))) {
+                writeTokens(output, tokens);
+            }
+            try {
+                Files.move(temporaryFile, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(temporaryFile, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException exception) {
+            logger.warn("Cannot store the tokens in the token cache: {}", exception.getMessage());
+        } finally {
+            deleteQuietly(temporaryFile);
+        }
+    }
+
+    /**
+     * @return the number of submissions whose tokens were loaded from the cache.
+     */
+    int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of submissions whose tokens were not cached.
+     */
+    int getMisses() {
+        return misses.get();
+    }
+
+    private Path entryOf(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key); // two levels keep the directories small
+    }
+
+    /**
+     * Writes tokens in the format of the cache entries, which is also used by the {@link ArchiveIndex}.
+     */
+    static void writeTokens(DataOutputStream output, TokenList tokens) throws IOException {
+        Map<String, Integer> fileIndices = new LinkedHashMap<>();
+        Map<Integer, String> typeNames = new LinkedHashMap<>();
+        for (Token token : tokens.allTokens()) {
+            fileIndices.putIfAbsent(token.getFile(), fileIndices.size());
+            typeNames.putIfAbsent(token.getType(), token.type2string());
+        }
+
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        writeVarInt(output, fileIndices.size());
+        for (String file : fileIndices.keySet()) {
+            output.writeUTF(file);
+        }
+        writeVarInt(output, typeNames.size());
+        for (Map.Entry<Integer, String> typeName : typeNames.entrySet()) {
+            writeSignedVarInt(output, typeName.getKey());
+            output.writeUTF(typeName.getValue());
+        }
+        writeVarInt(output, tokens.size());
+        for (Token token : tokens.allTokens()) {
+            writeSignedVarInt(output, token.getType());
+            writeVarInt(output, fileIndices.get(token.getFile()));
+            writeSignedVarInt(output, token.getLine());
+            writeSignedVarInt(output, token.getColumn());
+            writeSignedVarInt(output, token.getLength());
+        }
+    }
+
+    /**
+     * Reads tokens that were written by {@link #writeTokens(DataOutputStream, TokenList)}.
+     */
+    static TokenList readTokens(DataInput input) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unknown format");
+        }
+        int fileCount = readVarInt(input);
+        List<String> files = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            files.add(input.readUTF());
+        }
+        int typeCount = readVarInt(input);
+        Map<Integer, String> typeNames = new HashMap<>();
+        for (int i = 0; i < typeCount; i++) {
+            typeNames.put(readSignedVarInt(input), input.readUTF());
+        }
+        int tokenCount = readVarInt(input);
+        TokenList tokens = new TokenList();
+        for (int i = 0; i < tokenCount; i++) {
+            int type = readSignedVarInt(input);
+            String file = files.get(readVarInt(input));
+            tokens.addToken(
+                    new CachedToken(type, file, readSignedVarInt(input), readSignedVarInt(input), readSignedVarInt(input), typeNames.get(type)));
+        }
+        return tokens;
+    }
+
+    private static void writeVarInt(DataOutput output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte current = input.readByte();
+            value |= (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    private static void writeSignedVarInt(DataOutput output, int value) throws IOException {
+        writeVarInt(output, (value << 1) ^ (value >> 31)); // zigzag encoding, small negative values stay short
+    }
+
+    private static int readSignedVarInt(DataInput input) throws IOException {
+        int value = readVarInt(input);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] contentHash(File file) throws IOException {
+        MessageDigest digest = createDigest();
+        try (InputStream input = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (input.read(buffer) != -1) {
+                // the digest is updated while reading
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * @return the version of the frontend: its implementation version and, if it is packaged as a jar, the size and
+     * modification time of the jar, so that snapshot builds of the same version do not share entries.
+     */
+    static String frontendVersion(Language language) {
+        Class<?> type = language.getClass();
+        StringBuilder version = new StringBuilder(Optional.ofNullable(type.getPackage().getImplementationVersion()).orElse("unversioned"));
+        try {
+            CodeSource source = type.getProtectionDomain().getCodeSource();
+            if (source != null && source.getLocation() != null) {
+                File location = new File(source.getLocation().toURI());
+                if (location.isFile()) {
+                    version.append('-').append(location.length()).append('-').append(location.lastModified());
+                }
+            }
+        } catch (URISyntaxException | IllegalArgumentException | SecurityException exception) {
+            logger.debug("Cannot locate the frontend of {}: {}", language.getName(), exception.getMessage());
+        }
+        return version.toString();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not supported", exception); // every JVM supports it
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+        for (byte value : bytes) {
+            hex.append(Character.forDigit((value >> 4) & 0xF, 16)).append(Character.forDigit(value & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException exception) {
+                logger.debug("Cannot delete {}: {}", file, exception.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Token restored from the cache, which keeps the string representation of its type.
+     */
+    private static final class CachedToken extends Token {
+        private final String typeName;
+
+        CachedToken(int type, String file, int line, int column, int length, String typeName) {
+            super(type, file, line, column, length);
+            this.typeName = typeName;
+        }
+
+        @Override
+        protected String type2string() {
+            return typeName;
+        }
+    }
+}
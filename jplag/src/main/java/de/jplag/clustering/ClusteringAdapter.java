@@ -31,20 +31,28 @@ public class ClusteringAdapter {
      * @param metric function that assigns a similarity to each comparison
      */
     public ClusteringAdapter(Collection<JPlagComparison> comparisons, Function<JPlagComparison, Float> metric) {
-        mapping = new IntegerMapping<>(comparisons.size());
-        for (JPlagComparison comparison : comparisons) {
-            mapping.map(comparison.getFirstSubmission());
-            mapping.map(comparison.getSecondSubmission());
+        this(comparisons.stream().map(it -> new ComparisonSimilarity(it.getFirstSubmission(), it.getSecondSubmission(), metric.apply(it))).toList());
+    }
+
+    /**
+     * Creates the clustering adapter. Only submissions that appear in those similarities might also appear in
+     * {@link ClusteringResult}s obtained from this adapter.
+     * @param similarities of the compared submission pairs that should be included in the process of clustering
+     */
+    public ClusteringAdapter(Collection<ComparisonSimilarity> similarities) {
+        mapping = new IntegerMapping<>(similarities.size());
+        for (ComparisonSimilarity similarity : similarities) {
+            mapping.map(similarity.firstSubmission());
+            mapping.map(similarity.secondSubmission());
         }
         int size = mapping.size();
 
         similarityMatrix = new Array2DRowRealMatrix(size, size);
-        for (JPlagComparison comparison : comparisons) {
-            int firstIndex = mapping.map(comparison.getFirstSubmission());
-            int secondIndex = mapping.map(comparison.getSecondSubmission());
-            float similarity = metric.apply(comparison);
-            similarityMatrix.setEntry(firstIndex, secondIndex, similarity);
-            similarityMatrix.setEntry(secondIndex, firstIndex, similarity);
+        for (ComparisonSimilarity similarity : similarities) {
+            int firstIndex = mapping.map(similarity.firstSubmission());
+            int secondIndex = mapping.map(similarity.secondSubmission());
+            similarityMatrix.setEntry(firstIndex, secondIndex, similarity.similarity());
+            similarityMatrix.setEntry(secondIndex, firstIndex, similarity.similarity());
         }
     }
 
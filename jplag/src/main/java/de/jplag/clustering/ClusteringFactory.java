@@ -12,6 +12,7 @@ import org.slf4j.LoggerFactory;
 import de.jplag.JPlagComparison;
 import de.jplag.Submission;
 import de.jplag.clustering.algorithm.GenericClusteringAlgorithm;
+import de.jplag.options.SimilarityMetric;
 
 /**
  * Runs the clustering according to an options object.
@@ -24,6 +25,17 @@ public class ClusteringFactory {
     private static final Logger logger = LoggerFactory.getLogger(ClusteringFactory.class);
 
     public static List<ClusteringResult<Submission>> getClusterings(Collection<JPlagComparison> comparisons, ClusteringOptions options) {
+        SimilarityMetric metric = options.getSimilarityMetric();
+        return getClusteringsOfSimilarities(comparisons.stream()
+                .map(it -> new ComparisonSimilarity(it.getFirstSubmission(), it.getSecondSubmission(), metric.apply(it))).toList(), options);
+    }
+
+    /**
+     * Runs the clustering on the similarities of the compared submission pairs, which need to be calculated with the
+     * similarity metric of the options.
+     */
+    public static List<ClusteringResult<Submission>> getClusteringsOfSimilarities(Collection<ComparisonSimilarity> similarities,
+            ClusteringOptions options) {
         if (!options.isEnabled()) {
             logger.warn(CLUSTERING_DISABLED);
             return Collections.emptyList();
@@ -31,6 +43,10 @@ public class ClusteringFactory {
             logger.info(CLUSTERING_PARAMETERS, options.getAlgorithm(), options.getPreprocessor());
         }
 
+        if (similarities.isEmpty()) {
+            return Collections.emptyList(); // nothing to cluster, e.g. if no comparison reaches the threshold
+        }
+
         // init algorithm
         GenericClusteringAlgorithm clusteringAlgorithm = options.getAlgorithm().create(options);
 
@@ -43,7 +59,7 @@ public class ClusteringFactory {
         }
 
         // init adapter
-        ClusteringAdapter adapter = new ClusteringAdapter(comparisons, options.getSimilarityMetric());
+        ClusteringAdapter adapter = new ClusteringAdapter(similarities);
 
         // run clustering
         ClusteringResult<Submission> result = adapter.doClustering(clusteringAlgorithm);
@@ -0,0 +1,13 @@
+package de.jplag.clustering;
+
+import de.jplag.Submission;
+
+/**
+ * The similarity of a compared submission pair under the clustering metric. Unlike a comparison, it does not contain
+ * the matches, thus it is cheap to keep for all pairs.
+ * @param firstSubmission is the first of the two submissions.
+ * @param secondSubmission is the second of the two submissions.
+ * @param similarity is the similarity of the submissions.
+ */
+public record ComparisonSimilarity(Submission firstSubmission, Submission secondSubmission, float similarity) {
+}
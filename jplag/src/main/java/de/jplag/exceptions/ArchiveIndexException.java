@@ -0,0 +1,20 @@
+package de.jplag.exceptions;
+
+import java.io.Serial;
+
+/**
+ * Exceptions for problems with the archive index that lead to an preemptive exit.
+ */
+public class ArchiveIndexException extends ExitException {
+
+    @Serial
+    private static final long serialVersionUID = 4270148537112409621L; // generated
+
+    public ArchiveIndexException(String message) {
+        super(message);
+    }
+
+    public ArchiveIndexException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -14,6 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.jplag.Language;
+import de.jplag.MatchingAlgorithm;
 import de.jplag.clustering.ClusteringOptions;
 import de.jplag.strategy.ComparisonMode;
 
@@ -21,8 +22,13 @@ public class JPlagOptions {
 
     private static final Logger logger = LoggerFactory.getLogger("JPlag");
     public static final ComparisonMode DEFAULT_COMPARISON_MODE = NORMAL;
+    public static final MatchingAlgorithm DEFAULT_MATCHING_ALGORITHM = MatchingAlgorithm.GST;
     public static final float DEFAULT_SIMILARITY_THRESHOLD = 0;
     public static final int DEFAULT_SHOWN_COMPARISONS = 30;
+    public static final int DEFAULT_MIN_HASH_BANDS = 50;
+    public static final int DEFAULT_MIN_HASH_ROWS = 2;
+    public static final int DEFAULT_MINIMUM_SHARED_FINGERPRINTS = 1;
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
 
     public static final Charset CHARSET = StandardCharsets.UTF_8;
 
@@ -41,6 +47,52 @@ public class JPlagOptions {
      */
     private ComparisonMode comparisonMode = DEFAULT_COMPARISON_MODE;
 
+    /**
+     * Determines which algorithm is used to find the matches between two submissions.
+     */
+    private MatchingAlgorithm matchingAlgorithm = DEFAULT_MATCHING_ALGORITHM;
+
+    /**
+     * Number of bands of the locality-sensitive hashing used by {@link ComparisonMode#MINHASH}. Two submissions are
+     * compared if their MinHash signatures agree in at least one band, thus more bands increase the recall.
+     */
+    private int minHashBands = DEFAULT_MIN_HASH_BANDS;
+
+    /**
+     * Number of rows per band of the locality-sensitive hashing used by {@link ComparisonMode#MINHASH}. A band only agrees
+     * if all of its rows agree, thus more rows increase the precision.
+     */
+    private int minHashRows = DEFAULT_MIN_HASH_ROWS;
+
+    /**
+     * Number of winnowed fingerprints two submissions need to share to be compared by {@link ComparisonMode#WINNOWING}. The
+     * default of one only avoids comparisons of submissions without any match, larger values avoid more comparisons.
+     */
+    private int minimumSharedFingerprints = DEFAULT_MINIMUM_SHARED_FINGERPRINTS;
+
+    /**
+     * Number of threads used by the parallel comparison modes.
+     */
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * Directory of the persistent token cache, which allows reusing the tokens of unchanged submissions across runs. Null
+     * if the tokens are not cached.
+     */
+    private String tokenCacheDirectory;
+
+    /**
+     * Directory of the memory-mapped file that stores the tokens of the old submissions instead of the heap. Null if the
+     * tokens of the old submissions stay on the heap.
+     */
+    private String oldTokenStoreDirectory;
+
+    /**
+     * Directory of the persistent result cache, which allows reusing the matches of unchanged submission pairs across runs.
+     * Null if the results are not cached.
+     */
+    private String resultCacheDirectory;
+
     /**
      * If true, submissions that cannot be parsed will be stored in a separate directory.
      */
@@ -65,6 +117,19 @@ public class JPlagOptions {
      */
     private int maximumNumberOfComparisons = DEFAULT_SHOWN_COMPARISONS;
 
+    /**
+     * If true, only the shown comparisons (see maximumNumberOfComparisons) are retained in the result. The similarity
+     * distributions and the clustering still consider all comparisons. This limits the memory needed for the comparisons.
+     */
+    private boolean retainOnlyShownComparisons = false;
+
+    /**
+     * If true, the comparisons only keep their similarity metrics while all submission pairs are compared. Only the shown
+     * comparisons (see maximumNumberOfComparisons) are retained, and their matches are recomputed when they are accessed,
+     * which is cheap compared to keeping the matches of all pairs. Needs a limited number of shown comparisons.
+     */
+    private boolean metricsOnly = false;
+
     /**
      * The similarity metric determines how the minimum similarity threshold required for a comparison (of two submissions)
      * is calculated. This affects which comparisons are stored and thus make it into the result object.
@@ -157,6 +222,18 @@ public class JPlagOptions {
         return exclusionFileName;
     }
 
+    public String getTokenCacheDirectory() {
+        return tokenCacheDirectory;
+    }
+
+    public String getOldTokenStoreDirectory() {
+        return oldTokenStoreDirectory;
+    }
+
+    public String getResultCacheDirectory() {
+        return resultCacheDirectory;
+    }
+
     public String[] getFileSuffixes() {
         return fileSuffixes;
     }
@@ -169,14 +246,34 @@ public class JPlagOptions {
         return language;
     }
 
+    public MatchingAlgorithm getMatchingAlgorithm() {
+        return matchingAlgorithm;
+    }
+
     public int getMaximumNumberOfComparisons() {
         return this.maximumNumberOfComparisons;
     }
 
+    public int getMinHashBands() {
+        return minHashBands;
+    }
+
+    public int getMinHashRows() {
+        return minHashRows;
+    }
+
+    public int getMinimumSharedFingerprints() {
+        return minimumSharedFingerprints;
+    }
+
     public Integer getMinimumTokenMatch() {
         return minimumTokenMatch;
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
     public List<String> getSubmissionDirectories() {
         return submissionDirectories;
     }
@@ -209,6 +306,14 @@ public class JPlagOptions {
         return debugParser;
     }
 
+    public boolean isMetricsOnly() {
+        return metricsOnly;
+    }
+
+    public boolean isRetainOnlyShownComparisons() {
+        return retainOnlyShownComparisons;
+    }
+
     public ClusteringOptions getClusteringOptions() {
         return this.clusteringOptions;
     }
@@ -237,6 +342,18 @@ public class JPlagOptions {
         this.exclusionFileName = exclusionFileName;
     }
 
+    public void setTokenCacheDirectory(String tokenCacheDirectory) {
+        this.tokenCacheDirectory = tokenCacheDirectory;
+    }
+
+    public void setOldTokenStoreDirectory(String oldTokenStoreDirectory) {
+        this.oldTokenStoreDirectory = oldTokenStoreDirectory;
+    }
+
+    public void setResultCacheDirectory(String resultCacheDirectory) {
+        this.resultCacheDirectory = resultCacheDirectory;
+    }
+
     public void setFileSuffixes(String[] fileSuffixes) {
         this.fileSuffixes = fileSuffixes;
     }
@@ -260,10 +377,30 @@ public class JPlagOptions {
         }
     }
 
+    public void setMatchingAlgorithm(MatchingAlgorithm matchingAlgorithm) {
+        this.matchingAlgorithm = matchingAlgorithm;
+    }
+
     public void setMaximumNumberOfComparisons(int maximumNumberOfComparisons) {
         this.maximumNumberOfComparisons = Math.max(maximumNumberOfComparisons, -1);
     }
 
+    public void setMetricsOnly(boolean metricsOnly) {
+        this.metricsOnly = metricsOnly;
+    }
+
+    public void setMinHashBands(int minHashBands) {
+        this.minHashBands = Math.max(minHashBands, 1);
+    }
+
+    public void setMinHashRows(int minHashRows) {
+        this.minHashRows = Math.max(minHashRows, 1);
+    }
+
+    public void setMinimumSharedFingerprints(int minimumSharedFingerprints) {
+        this.minimumSharedFingerprints = Math.max(minimumSharedFingerprints, 1);
+    }
+
     public void setMinimumTokenMatch(Integer minimumTokenMatch) {
         if (minimumTokenMatch != null && minimumTokenMatch < 1) {
             this.minimumTokenMatch = 1;
@@ -272,6 +409,14 @@ public class JPlagOptions {
         }
     }
 
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    public void setRetainOnlyShownComparisons(boolean retainOnlyShownComparisons) {
+        this.retainOnlyShownComparisons = retainOnlyShownComparisons;
+    }
+
     public void setSubmissionDirectories(List<String> submissionDirectories) {
         this.submissionDirectories = submissionDirectories;
     }
@@ -0,0 +1,54 @@
+package de.jplag.strategy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import de.jplag.ComparisonSink;
+import de.jplag.ComparisonStatistics;
+import de.jplag.JPlagResult;
+import de.jplag.MatchingEngine;
+import de.jplag.Submission;
+import de.jplag.SubmissionSet;
+import de.jplag.options.JPlagOptions;
+
+/**
+ * Base class for strategies that do not compare all submission pairs, but only a preselected set of candidate pairs.
+ * The candidates are compared in parallel (the costliest first), the pairs that were not selected are counted as
+ * avoided comparisons.
+ */
+public abstract class AbstractCandidateComparisonStrategy extends AbstractComparisonStrategy {
+
+    protected AbstractCandidateComparisonStrategy(JPlagOptions options, MatchingEngine matchingEngine, ComparisonStatistics statistics) {
+        super(options, matchingEngine, statistics);
+    }
+
+    @Override
+    public JPlagResult compareSubmissions(SubmissionSet submissionSet) {
+        long timeBeforeStartInMillis = System.currentTimeMillis();
+        boolean withBaseCode = submissionSet.hasBaseCode();
+        if (withBaseCode) {
+            compareSubmissionsToBaseCode(submissionSet);
+        }
+
+        List<Submission> submissions = submissionSet.getSubmissions();
+        List<SubmissionTuple> candidates = buildCandidateTuples(submissions);
+        statistics.addAvoidedComparisons(buildComparisonTuples(submissions).size() - candidates.size());
+
+        List<SubmissionTuple> costliestFirst = new ArrayList<>(candidates);
+        costliestFirst.sort(Comparator.comparingLong(SubmissionTuple::estimatedCost).reversed());
+        ComparisonSink sink = createSink();
+        compareInParallel(new TupleList(costliestFirst), withBaseCode, sink);
+
+        long durationInMillis = System.currentTimeMillis() - timeBeforeStartInMillis;
+        return new JPlagResult(sink, submissionSet, durationInMillis, options);
+    }
+
+    /**
+     * Selects the submission pairs that are compared. Like {@link #buildComparisonTuples(List)}, only pairs of valid
+     * submissions with at least one new submission may be selected. Called after the base code comparisons.
+     * @param submissions are the submissions to select from.
+     * @return the candidate tuples in the same order as {@link #buildComparisonTuples(List)}.
+     */
+    protected abstract List<SubmissionTuple> buildCandidateTuples(List<Submission> submissions);
+}
@@ -1,29 +1,43 @@
 package de.jplag.strategy;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import de.jplag.GreedyStringTiling;
+import de.jplag.ComparisonSink;
+import de.jplag.ComparisonSink.Accumulator;
+import de.jplag.ComparisonStatistics;
 import de.jplag.JPlagComparison;
+import de.jplag.MatchingEngine;
+import de.jplag.SimilarityUpperBound;
 import de.jplag.Submission;
 import de.jplag.SubmissionSet;
 import de.jplag.options.JPlagOptions;
 
 public abstract class AbstractComparisonStrategy implements ComparisonStrategy {
+    private static final long CACHE_SIZE = 2L << 20; // roughly the per-core cache (L2) of current processors
+    private static final int BYTES_PER_TOKEN = 48; // token object, its reference, and its hash index entries
+    private static final int TASKS_PER_WORKER = 32; // ranges of equal cost per worker, below which ranges are not split
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private final GreedyStringTiling greedyStringTiling;
+    protected final MatchingEngine matchingEngine;
+
+    private final SimilarityUpperBound similarityUpperBound;
 
     protected final JPlagOptions options;
 
-    protected AbstractComparisonStrategy(JPlagOptions options, GreedyStringTiling greedyStringTiling) {
-        this.greedyStringTiling = greedyStringTiling;
+    protected final ComparisonStatistics statistics;
+
+    protected AbstractComparisonStrategy(JPlagOptions options, MatchingEngine matchingEngine, ComparisonStatistics statistics) {
+        this.matchingEngine = matchingEngine;
         this.options = options;
+        this.statistics = statistics;
+        similarityUpperBound = new SimilarityUpperBound(options);
     }
 
     /**
@@ -36,17 +50,21 @@ public abstract class AbstractComparisonStrategy implements ComparisonStrategy {
     protected void compareSubmissionsToBaseCode(SubmissionSet submissionSet) {
         Submission baseCodeSubmission = submissionSet.getBaseCode();
         for (Submission currentSubmission : submissionSet.getSubmissions()) {
-            JPlagComparison baseCodeComparison = greedyStringTiling.compareWithBaseCode(currentSubmission, baseCodeSubmission);
+            JPlagComparison baseCodeComparison = matchingEngine.compareWithBaseCode(currentSubmission, baseCodeSubmission);
             currentSubmission.setBaseCodeComparison(baseCodeComparison);
-            baseCodeSubmission.resetBaseCode();
         }
     }
 
     /**
-     * Compares two submissions and optionally returns the results if similarity is high enough.
+     * Compares two submissions and optionally returns the results if similarity is high enough. Submissions whose
+     * similarity cannot reach the threshold are not compared at all.
      */
     protected Optional<JPlagComparison> compareSubmissions(Submission first, Submission second, boolean withBaseCode) {
-        JPlagComparison comparison = greedyStringTiling.compare(first, second);
+        if (similarityUpperBound.isBelowThreshold(first, second)) {
+            statistics.countSkippedComparison();
+            return Optional.empty();
+        }
+        JPlagComparison comparison = matchingEngine.compare(first, second);
         logger.info("Comparing {}-{}: {}", first.getName(), second.getName(), comparison.similarity());
 
         if (options.getSimilarityMetric().isAboveThreshold(comparison, options.getSimilarityThreshold())) {
@@ -56,28 +74,108 @@ public abstract class AbstractComparisonStrategy implements ComparisonStrategy {
     }
 
     /**
-     * @return a list of all submission tuples to be processed.
+     * @return a new sink for the comparisons, which can recompute the matches of the retained comparisons if only the
+     * metrics are kept.
      */
-    protected static List<SubmissionTuple> buildComparisonTuples(List<Submission> submissions) {
-        List<SubmissionTuple> tuples = new ArrayList<>();
+    protected ComparisonSink createSink() {
+        return new ComparisonSink(options, matchingEngine);
+    }
 
-        for (int i = 0; i < (submissions.size() - 1); i++) {
-            Submission first = submissions.get(i);
-            if (first.getTokenList() == null) {
-                continue;
-            }
+    /**
+     * Compares submission tuples in parallel on a work-stealing {@link ForkJoinPool} with the configured parallelism. A
+     * task splits its range of tuples recursively into two halves of equal {@link SubmissionTuple#estimatedCost() estimated
+     * cost} until the range costs at most a small share of all tuples or consists of a single tuple. Each task forks its
+     * second half and continues with the first one, thus idle workers steal the largest remaining halves, and every worker
+     * compares its tuples in their order. If the costliest tuples come first, they are started first and split into the
+     * smallest ranges, thus no large comparison is left for the end (longest processing time first scheduling). Each worker
+     * collects its comparisons in its own accumulator without locking, the accumulators are merged into the sink once all
+     * tasks are done.
+     * @param tuples are the tuples to compare.
+     * @param withBaseCode specifies if base code is used.
+     * @param sink collects the comparisons that are similar enough.
+     */
+    protected void compareInParallel(TupleSequence tuples, boolean withBaseCode, ComparisonSink sink) {
+        int parallelism = options.getParallelism();
+        double totalCost = tuples.costBefore(tuples.size());
+        WorkerAccumulators accumulators = new WorkerAccumulators(sink);
+        ComparisonTask root = new ComparisonTask(tuples, 0, tuples.size(), 0, totalCost, totalCost / (parallelism * TASKS_PER_WORKER), withBaseCode,
+                accumulators);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(root);
+        } finally {
+            pool.shutdown();
+        }
+        accumulators.mergeIntoSink();
+    }
+
+    /**
+     * @return all submission tuples to be processed. The tuples are created lazily while iterating, and the sequence knows
+     * their exact number and estimated costs, thus it can be split for parallel processing.
+     */
+    protected static TupleSequence buildComparisonTuples(List<Submission> submissions) {
+        return new SubmissionPairs(submissions);
+    }
 
-            for (int j = (i + 1); j < submissions.size(); j++) {
-                Submission second = submissions.get(j);
-                if (second.getTokenList() == null) {
-                    continue;
-                }
+    /**
+     * @return all submission tuples to be processed, like {@link #buildComparisonTuples(List)}, but ordered in blocks of
+     * submissions: The tokens of two blocks fit into the cache together, thus consecutive comparisons of a worker mostly
+     * read cached data. The blocks of the largest submissions come first, see
+     * {@link #compareInParallel(TupleSequence, boolean, ComparisonSink)}.
+     */
+    protected static TupleSequence buildBlockedComparisonTuples(List<Submission> submissions) {
+        return new SubmissionPairs(submissions, blockSizeFor(submissions), true);
+    }
+
+    /**
+     * @return the number of submissions per block, such that two blocks of submissions with an average number of tokens fit
+     * into the cache.
+     */
+    static int blockSizeFor(List<Submission> submissions) {
+        double averageTokens = submissions.stream().filter(it -> it.getTokenList() != null).mapToInt(Submission::getNumberOfTokens).average()
+                .orElse(1);
+        return (int) Math.max(1, CACHE_SIZE / (2 * BYTES_PER_TOKEN * Math.max(1, averageTokens)));
+    }
+
+    /**
+     * Compares a range of tuples, either directly or by splitting it into two halves of equal cost.
+     */
+    private final class ComparisonTask extends RecursiveAction {
+        private final TupleSequence tuples;
+        private final long from;
+        private final long to;
+        private final double fromCost; // cost of the tuples before the range
+        private final double toCost; // cost of the tuples before the end of the range
+        private final double maximumSequentialCost;
+        private final boolean withBaseCode;
+        private final WorkerAccumulators accumulators;
+
+        ComparisonTask(TupleSequence tuples, long from, long to, double fromCost, double toCost, double maximumSequentialCost, boolean withBaseCode,
+                WorkerAccumulators accumulators) {
+            this.tuples = tuples;
+            this.from = from;
+            this.to = to;
+            this.fromCost = fromCost;
+            this.toCost = toCost;
+            this.maximumSequentialCost = maximumSequentialCost;
+            this.withBaseCode = withBaseCode;
+            this.accumulators = accumulators;
+        }
 
-                if (first.isNew() || second.isNew()) {
-                    tuples.add(new SubmissionTuple(first, second));
-                }
+        @Override
+        protected void compute() {
+            if (to - from > 1 && toCost - fromCost > maximumSequentialCost) {
+                long middle = Math.max(from + 1, Math.min(to - 1, tuples.indexOfCost((fromCost + toCost) / 2)));
+                double middleCost = tuples.costBefore(middle);
+                ComparisonTask second = new ComparisonTask(tuples, middle, to, middleCost, toCost, maximumSequentialCost, withBaseCode, accumulators);
+                second.fork();
+                new ComparisonTask(tuples, from, middle, fromCost, middleCost, maximumSequentialCost, withBaseCode, accumulators).compute();
+                second.join();
+                return;
             }
+            Accumulator accumulator = accumulators.get();
+            tuples.spliterator(from, to)
+                    .forEachRemaining(tuple -> compareSubmissions(tuple.left(), tuple.right(), withBaseCode).ifPresent(accumulator::add));
         }
-        return tuples;
     }
 }
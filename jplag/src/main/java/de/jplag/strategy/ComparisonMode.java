@@ -9,7 +9,10 @@ import java.util.Optional;
  */
 public enum ComparisonMode {
     NORMAL("Normal comparison (sequential)"),
-    PARALLEL("Faster comparison (parallel)");
+    PARALLEL("Faster comparison (parallel)"),
+    MINHASH("Approximate comparison of huge submission sets (parallel), only similar candidates are compared"),
+    WINNOWING("Faster comparison (parallel), only submissions with shared fingerprints are compared"),
+    PIPELINED("Faster comparison (parallel), the comparisons start while the submissions are parsed");
 
     private final String name;
     private final String description;
@@ -1,6 +1,9 @@
 package de.jplag.strategy;
 
+import java.util.Optional;
+
 import de.jplag.JPlagResult;
+import de.jplag.ParsingListener;
 import de.jplag.SubmissionSet;
 
 /**
@@ -14,4 +17,12 @@ public interface ComparisonStrategy {
      * @return the comparison results.
      */
     JPlagResult compareSubmissions(SubmissionSet submissionSet);
+
+    /**
+     * @return the listener that needs to receive the submissions while they are parsed, if the strategy starts comparing
+     * before all submissions are parsed.
+     */
+    default Optional<ParsingListener> getParsingListener() {
+        return Optional.empty();
+    }
 }
@@ -0,0 +1,126 @@
+package de.jplag.strategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.jplag.ComparisonStatistics;
+import de.jplag.MatchingEngine;
+import de.jplag.MinHashing;
+import de.jplag.Submission;
+import de.jplag.options.JPlagOptions;
+
+/**
+ * Strategy for huge submission sets, where comparing all submission pairs is infeasible. Selects candidate pairs via
+ * locality-sensitive hashing of the MinHash signatures of the submissions: The signatures are split into bands, and two
+ * submissions become candidates if they agree in all rows of at least one band. Only the candidates are compared. Pairs
+ * with a low similarity are likely not compared at all, thus the result is approximate.
+ */
+public class MinHashComparisonStrategy extends AbstractCandidateComparisonStrategy {
+
+    public MinHashComparisonStrategy(JPlagOptions options, MatchingEngine matchingEngine, ComparisonStatistics statistics) {
+        super(options, matchingEngine, statistics);
+    }
+
+    @Override
+    protected List<SubmissionTuple> buildCandidateTuples(List<Submission> submissions) {
+        MinHashing minHashing = new MinHashing(options);
+        List<long[]> signatures = submissions.parallelStream()
+                .map(submission -> submission.getTokenList() == null ? new long[0] : minHashing.createSignature(submission)).toList();
+
+        int bands = options.getMinHashBands();
+        int rows = options.getMinHashRows();
+        long[] candidatePairs = new long[0]; // sorted and distinct, encoded as first * size + second
+        for (int band = 0; band < bands; band++) {
+            Map<BandKey, List<Integer>> buckets = new HashMap<>();
+            for (int index = 0; index < signatures.size(); index++) {
+                long[] signature = signatures.get(index);
+                if (signature.length > 0) {
+                    BandKey key = new BandKey(Arrays.copyOfRange(signature, band * rows, (band + 1) * rows));
+                    buckets.computeIfAbsent(key, it -> new ArrayList<>()).add(index);
+                }
+            }
+            long[] bandPairs = new long[16];
+            int bandPairCount = 0;
+            for (List<Integer> bucket : buckets.values()) {
+                for (int i = 0; i < bucket.size() - 1; i++) {
+                    boolean firstIsNew = submissions.get(bucket.get(i)).isNew();
+                    for (int j = i + 1; j < bucket.size(); j++) {
+                        if (!firstIsNew && !submissions.get(bucket.get(j)).isNew()) {
+                            continue; // old submissions are not compared with each other
+                        }
+                        if (bandPairCount == bandPairs.length) {
+                            bandPairs = Arrays.copyOf(bandPairs, grownLength(bandPairCount));
+                        }
+                        bandPairs[bandPairCount++] = (long) bucket.get(i) * submissions.size() + bucket.get(j);
+                    }
+                }
+            }
+            Arrays.sort(bandPairs, 0, bandPairCount);
+            candidatePairs = mergeDistinct(candidatePairs, bandPairs, bandPairCount);
+        }
+
+        List<SubmissionTuple> tuples = new ArrayList<>(candidatePairs.length);
+        for (long pair : candidatePairs) {
+            Submission first = submissions.get((int) (pair / submissions.size()));
+            Submission second = submissions.get((int) (pair % submissions.size()));
+            tuples.add(new SubmissionTuple(first, second));
+        }
+        return tuples;
+    }
+
+    /**
+     * Merges the pairs of a band into the candidate pairs, dropping duplicates.
+     * @param candidatePairs are the sorted and distinct candidate pairs of the previous bands.
+     * @param bandPairs are the pairs of the band, sorted up to their count.
+     * @param bandPairCount is the number of pairs of the band.
+     * @return the sorted and distinct union of both.
+     */
+    private static long[] mergeDistinct(long[] candidatePairs, long[] bandPairs, int bandPairCount) {
+        long[] merged = new long[Math.addExact(candidatePairs.length, bandPairCount)];
+        int count = 0;
+        int candidateIndex = 0;
+        int bandIndex = 0;
+        while (candidateIndex < candidatePairs.length || bandIndex < bandPairCount) {
+            long next;
+            if (bandIndex == bandPairCount || candidateIndex < candidatePairs.length && candidatePairs[candidateIndex] <= bandPairs[bandIndex]) {
+                next = candidatePairs[candidateIndex++];
+            } else {
+                next = bandPairs[bandIndex++];
+            }
+            if (count == 0 || merged[count - 1] != next) {
+                merged[count++] = next;
+            }
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+
+    private static int grownLength(int length) {
+        if (length == Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many candidate pairs in one band: " + length);
+        }
+        return (int) Math.min(2L * length, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * The rows of a signature that belong to one band.
+     */
+    private record BandKey(long[] rows) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof BandKey key && Arrays.equals(rows, key.rows);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(rows);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(rows);
+        }
+    }
+}
@@ -1,19 +1,19 @@
 package de.jplag.strategy;
 
-import java.util.ArrayList;
 import java.util.List;
 
-import de.jplag.GreedyStringTiling;
-import de.jplag.JPlagComparison;
+import de.jplag.ComparisonSink;
+import de.jplag.ComparisonStatistics;
 import de.jplag.JPlagResult;
+import de.jplag.MatchingEngine;
 import de.jplag.Submission;
 import de.jplag.SubmissionSet;
 import de.jplag.options.JPlagOptions;
 
 public class NormalComparisonStrategy extends AbstractComparisonStrategy {
 
-    public NormalComparisonStrategy(JPlagOptions options, GreedyStringTiling greedyStringTiling) {
-        super(options, greedyStringTiling);
+    public NormalComparisonStrategy(JPlagOptions options, MatchingEngine matchingEngine, ComparisonStatistics statistics) {
+        super(options, matchingEngine, statistics);
     }
 
     @Override
@@ -25,14 +25,14 @@ public class NormalComparisonStrategy extends AbstractComparisonStrategy {
 
         List<Submission> submissions = submissionSet.getSubmissions();
         long timeBeforeStartInMillis = System.currentTimeMillis();
-        List<JPlagComparison> comparisons = new ArrayList<>();
+        ComparisonSink sink = createSink();
 
         for (SubmissionTuple tuple : buildComparisonTuples(submissions)) {
-            compareSubmissions(tuple.left(), tuple.right(), withBaseCode).ifPresent(comparisons::add);
+            compareSubmissions(tuple.left(), tuple.right(), withBaseCode).ifPresent(sink::add);
         }
 
         long durationInMillis = System.currentTimeMillis() - timeBeforeStartInMillis;
-        return new JPlagResult(comparisons, submissionSet, durationInMillis, options);
+        return new JPlagResult(sink, submissionSet, durationInMillis, options);
     }
 
 }
@@ -0,0 +1,139 @@
+package de.jplag.strategy;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import de.jplag.ComparisonSink;
+import de.jplag.ComparisonStatistics;
+import de.jplag.JPlagResult;
+import de.jplag.MatchingEngine;
+import de.jplag.ParsingListener;
+import de.jplag.Submission;
+import de.jplag.SubmissionSet;
+import de.jplag.options.JPlagOptions;
+
+/**
+ * Strategy that compares the submissions while they are parsed. As soon as a submission is parsed, it is indexed and
+ * compared with the base code, which makes it ready. Then, it is compared with all submissions that became ready before
+ * it on a pool with the configured parallelism. Thus, the comparisons start with the first parsed submission instead of
+ * the last one, and the parser-heavy work overlaps with the comparison-heavy work. The comparisons are the same as with
+ * the other exhaustive strategies. Each thread of the pool collects its comparisons in its own accumulator.
+ * <p>
+ * The strategy needs to receive the submissions via its {@link #getParsingListener() parsing listener}, thus an
+ * instance can only be used for a single submission set.
+ * </p>
+ */
+public class PipelinedComparisonStrategy extends AbstractComparisonStrategy implements ParsingListener {
+    private static final int MINIMUM_ROW_LENGTH = 16; // rows with more comparisons are split into multiple tasks
+
+    private final ComparisonSink sink;
+    private final WorkerAccumulators accumulators;
+    private final Queue<ForkJoinTask<?>> rows = new ConcurrentLinkedQueue<>();
+    private ForkJoinPool pool;
+    private Map<Submission, Integer> positions; // position of each submission in the submission set
+    private Submission[] readySubmissions; // in the order they became ready, the prefix up to readyCount is filled
+    private int readyCount;
+    private Submission baseCode;
+    private long startTime;
+
+    public PipelinedComparisonStrategy(JPlagOptions options, MatchingEngine matchingEngine, ComparisonStatistics statistics) {
+        super(options, matchingEngine, statistics);
+        sink = createSink();
+        accumulators = new WorkerAccumulators(sink);
+    }
+
+    @Override
+    public Optional<ParsingListener> getParsingListener() {
+        return Optional.of(this);
+    }
+
+    @Override
+    public void parsingStarted(List<Submission> submissions, Submission baseCode) {
+        startTime = System.currentTimeMillis();
+        this.baseCode = baseCode;
+        positions = new IdentityHashMap<>();
+        for (int i = 0; i < submissions.size(); i++) {
+            positions.put(submissions.get(i), i);
+        }
+        readySubmissions = new Submission[submissions.size()];
+        if (baseCode != null) {
+            matchingEngine.createIndex(baseCode);
+        }
+        pool = new ForkJoinPool(options.getParallelism());
+    }
+
+    @Override
+    public void submissionParsed(Submission submission) {
+        matchingEngine.createIndex(submission);
+        if (baseCode != null) {
+            submission.setBaseCodeComparison(matchingEngine.compareWithBaseCode(submission, baseCode));
+        }
+        int previouslyReady;
+        synchronized (this) {
+            previouslyReady = readyCount;
+            readySubmissions[readyCount++] = submission;
+        }
+        if (previouslyReady > 0) {
+            rows.add(pool.submit(new RowComparison(submission, 0, previouslyReady)));
+        }
+    }
+
+    @Override
+    public void parsingFinished() {
+        if (pool != null) {
+            pool.shutdown(); // the submitted rows are still compared
+        }
+    }
+
+    @Override
+    public JPlagResult compareSubmissions(SubmissionSet submissionSet) {
+        if (pool == null) {
+            throw new IllegalStateException("The submissions need to be parsed with the parsing listener of the strategy!");
+        }
+        rows.forEach(ForkJoinTask::join);
+        accumulators.mergeIntoSink();
+        long durationInMillis = System.currentTimeMillis() - startTime;
+        return new JPlagResult(sink, submissionSet, durationInMillis, options);
+    }
+
+    /**
+     * Compares a submission with a range of the submissions that became ready before it. The submissions of each pair keep
+     * their order in the submission set.
+     */
+    private final class RowComparison extends RecursiveAction {
+        private final Submission submission;
+        private final int from;
+        private final int to;
+
+        RowComparison(Submission submission, int from, int to) {
+            this.submission = submission;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 2 * MINIMUM_ROW_LENGTH) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowComparison(submission, from, middle), new RowComparison(submission, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                Submission other = readySubmissions[i];
+                if (submission.isNew() || other.isNew()) {
+                    boolean otherFirst = positions.get(other) < positions.get(submission);
+                    Submission first = otherFirst ? other : submission;
+                    Submission second = otherFirst ? submission : other;
+                    compareSubmissions(first, second, baseCode != null).ifPresent(accumulators.get()::add);
+                }
+            }
+        }
+    }
+}
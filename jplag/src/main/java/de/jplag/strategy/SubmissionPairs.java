@@ -0,0 +1,347 @@
+package de.jplag.strategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import de.jplag.Submission;
+
+/**
+ * Lazy sequence of all submission tuples that need to be compared: All pairs of valid submissions where at least one of
+ * them is new. The pairs are only created while iterating, thus the memory does not grow with the number of pairs.
+ * <p>
+ * The comparison matrix is partitioned into blocks of B×B submissions, which are ordered row by row (upper triangle
+ * only). Within a block, the pairs are ordered by the indices of their submissions. Consecutive pairs thus reuse the
+ * same 2·B submissions, whose tokens and indices stay in the cache if B is chosen accordingly. With a single block, the
+ * pairs are simply ordered by the indices of their submissions.
+ * </p>
+ * <p>
+ * Optionally, the costliest pairs come first: The submissions are sorted by size, and the block pairs by the estimated
+ * cost of their pairs. When the pairs are dispatched in this order, the largest comparisons are started first and the
+ * small ones fill the gaps at the end (longest processing time first scheduling). Either way, the submissions of each
+ * tuple keep their original order.
+ * </p>
+ * <p>
+ * Each pair has a global index, and the start index of each block is stored. Within a block, the i-th submission forms
+ * a row of pairs with the submissions of the other block: with all of them if it is new, otherwise only with the new
+ * ones. Thus, any pair can be located from its index, which allows splitting the sequence for parallel processing. The
+ * estimated cost of each block pair is stored as well, and the cost within a block pair is summed row by row, which
+ * allows splitting the sequence into parts of equal cost.
+ * </p>
+ */
+final class SubmissionPairs implements TupleSequence {
+    private final List<Submission> submissions; // valid submissions only, in the order of the pairs
+    private final int[] positions; // position of each submission in the original order
+    private final int blockSize;
+    private final int[] blockRows; // first block index of each block pair
+    private final int[] blockColumns; // second block index of each block pair
+    private final long[] blockStarts; // index of the first pair of each block pair, the last entry is the number of pairs
+    private final int[] newSubmissions; // indices of the new submissions
+    private final int[] newSubmissionsBefore; // number of new submissions before each index
+    private final int[] tokens; // number of tokens of each submission
+    private final long[] tokensBefore; // number of tokens of the submissions before each index
+    private final long[] newTokensBefore; // number of tokens of the new submissions before each index in newSubmissions
+    private final double[] blockCosts; // estimated cost of the pairs before each block pair, the last entry is the total
+
+    /**
+     * Creates the pairs for a list of submissions, ordered by the indices of their submissions.
+     * @param submissions are the submissions, invalid submissions (without a token list) are ignored.
+     */
+    SubmissionPairs(List<Submission> submissions) {
+        this(submissions, Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Creates the pairs for a list of submissions, ordered by blocks.
+     * @param submissions are the submissions, invalid submissions (without a token list) are ignored.
+     * @param blockSize is the number of submissions B per block.
+     * @param costliestFirst specifies whether the submissions are ordered by their number of tokens (descending) before
+     * forming the blocks, and the block pairs are ordered by their {@link SubmissionTuple#estimatedCost() estimated cost}
+     * per pair (descending). Otherwise, the submissions and block pairs keep their order.
+     */
+    SubmissionPairs(List<Submission> submissions, int blockSize, boolean costliestFirst) {
+        List<Submission> validSubmissions = submissions.stream().filter(it -> it.getTokenList() != null).toList();
+        int size = validSubmissions.size();
+        positions = IntStream.range(0, size).boxed()
+                .sorted(costliestFirst ? Comparator.comparingInt((Integer it) -> validSubmissions.get(it).getNumberOfTokens()).reversed()
+                        : Comparator.naturalOrder())
+                .mapToInt(Integer::intValue).toArray();
+        this.submissions = Arrays.stream(positions).mapToObj(validSubmissions::get).toList();
+        this.blockSize = Math.max(1, Math.min(blockSize, size));
+        newSubmissionsBefore = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            newSubmissionsBefore[i + 1] = newSubmissionsBefore[i] + (this.submissions.get(i).isNew() ? 1 : 0);
+        }
+        newSubmissions = new int[newSubmissionsBefore[size]];
+        tokens = new int[size];
+        tokensBefore = new long[size + 1];
+        newTokensBefore = new long[newSubmissions.length + 1];
+        for (int i = 0; i < size; i++) {
+            tokens[i] = this.submissions.get(i).getNumberOfTokens();
+            tokensBefore[i + 1] = tokensBefore[i] + tokens[i];
+            if (this.submissions.get(i).isNew()) {
+                newSubmissions[newSubmissionsBefore[i]] = i;
+                newTokensBefore[newSubmissionsBefore[i] + 1] = newTokensBefore[newSubmissionsBefore[i]] + tokens[i];
+            }
+        }
+
+        int blocks = (size + this.blockSize - 1) / this.blockSize;
+        List<int[]> blockPairs = new ArrayList<>();
+        for (int row = 0; row < blocks; row++) {
+            for (int column = row; column < blocks; column++) {
+                blockPairs.add(new int[] {row, column});
+            }
+        }
+        if (costliestFirst) {
+            double[] averageTokens = IntStream.range(0, blocks).mapToDouble(block -> IntStream.range(blockStart(block), blockEnd(block))
+                    .map(it -> this.submissions.get(it).getNumberOfTokens()).average().orElse(0)).toArray();
+            blockPairs.sort(Comparator.comparingDouble((int[] it) -> averageTokens[it[0]] * averageTokens[it[1]]).reversed());
+        }
+        blockRows = new int[blockPairs.size()];
+        blockColumns = new int[blockPairs.size()];
+        blockStarts = new long[blockPairs.size() + 1];
+        blockCosts = new double[blockPairs.size() + 1];
+        for (int blockPair = 0; blockPair < blockPairs.size(); blockPair++) {
+            blockRows[blockPair] = blockPairs.get(blockPair)[0];
+            blockColumns[blockPair] = blockPairs.get(blockPair)[1];
+            blockStarts[blockPair + 1] = blockStarts[blockPair] + countPairs(blockRows[blockPair], blockColumns[blockPair]);
+            double cost = 0;
+            for (int row = blockStart(blockRows[blockPair]); row < blockEnd(blockRows[blockPair]); row++) {
+                cost += rowCost(blockPair, row, rowLength(blockPair, row));
+            }
+            blockCosts[blockPair + 1] = blockCosts[blockPair] + cost;
+        }
+    }
+
+    @Override
+    public long size() {
+        return blockStarts[blockStarts.length - 1];
+    }
+
+    @Override
+    public Iterator<SubmissionTuple> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    @Override
+    public Spliterator<SubmissionTuple> spliterator(long from, long to) {
+        return new PairSpliterator(from, to);
+    }
+
+    @Override
+    public double costBefore(long index) {
+        if (index >= size()) {
+            return blockCosts[blockCosts.length - 1];
+        }
+        int blockPair = blockPairOf(index);
+        double cost = blockCosts[blockPair];
+        long rowStart = blockStarts[blockPair];
+        for (int row = blockStart(blockRows[blockPair]);; row++) { // the block pair contains the index
+            int length = rowLength(blockPair, row);
+            if (index < rowStart + length) {
+                return cost + rowCost(blockPair, row, (int) (index - rowStart));
+            }
+            cost += rowCost(blockPair, row, length);
+            rowStart += length;
+        }
+    }
+
+    @Override
+    public long indexOfCost(double cost) {
+        int low = 0;
+        int high = blockRows.length;
+        while (low < high) { // find the first block pair whose pairs cost more than the given cost
+            int middle = (low + high) >>> 1;
+            if (blockCosts[middle + 1] <= cost) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == blockRows.length) {
+            return size();
+        }
+        double rowCost = blockCosts[low];
+        long rowStart = blockStarts[low];
+        for (int row = blockStart(blockRows[low]); row < blockEnd(blockRows[low]); row++) {
+            int length = rowLength(low, row);
+            double nextRowCost = rowCost + rowCost(low, row, length);
+            if (nextRowCost > cost) {
+                int pairs = 0; // find the number of pairs of the row whose cost fits
+                int upper = length;
+                while (pairs < upper) {
+                    int middle = (pairs + upper + 1) >>> 1;
+                    if (rowCost + rowCost(low, row, middle) <= cost) {
+                        pairs = middle;
+                    } else {
+                        upper = middle - 1;
+                    }
+                }
+                return rowStart + pairs;
+            }
+            rowCost = nextRowCost;
+            rowStart += length;
+        }
+        return blockStarts[low + 1]; // only reached due to rounding
+    }
+
+    private int blockStart(int block) {
+        return block * blockSize;
+    }
+
+    private int blockEnd(int block) {
+        return Math.min(blockStart(block + 1), submissions.size());
+    }
+
+    private int newSubmissionsBetween(int from, int to) {
+        return newSubmissionsBefore[to] - newSubmissionsBefore[from];
+    }
+
+    private long countPairs(int row, int column) {
+        long rowSize = blockEnd(row) - blockStart(row);
+        long rowNew = newSubmissionsBetween(blockStart(row), blockEnd(row));
+        if (row == column) {
+            long rowOld = rowSize - rowNew;
+            return rowSize * (rowSize - 1) / 2 - rowOld * (rowOld - 1) / 2;
+        }
+        long columnSize = blockEnd(column) - blockStart(column);
+        long columnNew = newSubmissionsBetween(blockStart(column), blockEnd(column));
+        return rowNew * columnSize + (rowSize - rowNew) * columnNew;
+    }
+
+    /**
+     * @return the first submission that can be paired with the given submission in a block pair.
+     */
+    private int firstPartner(int blockPair, int submission) {
+        int column = blockColumns[blockPair];
+        return blockRows[blockPair] == column ? submission + 1 : blockStart(column);
+    }
+
+    /**
+     * @return the number of pairs of a submission in a block pair.
+     */
+    private int rowLength(int blockPair, int submission) {
+        int from = firstPartner(blockPair, submission);
+        int to = blockEnd(blockColumns[blockPair]);
+        return submissions.get(submission).isNew() ? to - from : newSubmissionsBetween(from, to);
+    }
+
+    /**
+     * @return the estimated cost of the first pairs of a submission in a block pair.
+     */
+    private double rowCost(int blockPair, int submission, int pairs) {
+        int from = firstPartner(blockPair, submission);
+        long partnerTokens;
+        if (submissions.get(submission).isNew()) {
+            partnerTokens = tokensBefore[from + pairs] - tokensBefore[from];
+        } else {
+            int firstNew = newSubmissionsBefore[from];
+            partnerTokens = newTokensBefore[firstNew + pairs] - newTokensBefore[firstNew];
+        }
+        return (double) tokens[submission] * partnerTokens;
+    }
+
+    private SubmissionTuple pairAt(int blockPair, int submission, int offset) {
+        int from = firstPartner(blockPair, submission);
+        int partner = submissions.get(submission).isNew() ? from + offset : newSubmissions[newSubmissionsBefore[from] + offset];
+        if (positions[submission] > positions[partner]) {
+            return new SubmissionTuple(submissions.get(partner), submissions.get(submission));
+        }
+        return new SubmissionTuple(submissions.get(submission), submissions.get(partner));
+    }
+
+    /**
+     * @return the block pair that contains the pair with the given index.
+     */
+    private int blockPairOf(long index) {
+        int low = 0;
+        int high = blockRows.length - 1;
+        while (low < high) { // find the last block pair that starts before or at the index
+            int middle = (low + high + 1) >>> 1;
+            if (blockStarts[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Iterates over a range of pair indices and splits it in halves.
+     */
+    private final class PairSpliterator implements Spliterator<SubmissionTuple> {
+        private long index;
+        private final long end;
+        private int blockPair;
+        private int row; // submission of the current row
+        private long rowStart; // index of the first pair of the current row
+
+        PairSpliterator(long index, long end) {
+            this.index = index;
+            this.end = end;
+            if (index < end) {
+                moveTo(index);
+            }
+        }
+
+        private void moveTo(long index) {
+            blockPair = blockPairOf(index);
+            row = blockStart(blockRows[blockPair]);
+            rowStart = blockStarts[blockPair];
+            advanceRow();
+        }
+
+        private void advanceRow() {
+            while (index >= blockStarts[blockPair + 1]) {
+                blockPair++;
+                row = blockStart(blockRows[blockPair]);
+                rowStart = blockStarts[blockPair];
+            }
+            int length;
+            while (index >= rowStart + (length = rowLength(blockPair, row))) {
+                rowStart += length;
+                row++;
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super SubmissionTuple> action) {
+            if (index >= end) {
+                return false;
+            }
+            advanceRow();
+            action.accept(pairAt(blockPair, row, (int) (index - rowStart)));
+            index++;
+            return true;
+        }
+
+        @Override
+        public Spliterator<SubmissionTuple> trySplit() {
+            if (end - index < 2) {
+                return null;
+            }
+            long middle = (index + end) >>> 1;
+            PairSpliterator prefix = new PairSpliterator(index, middle);
+            index = middle;
+            moveTo(middle);
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+}
@@ -15,6 +15,14 @@ public record SubmissionTuple(Submission left, Submission right) {
         }
     }
 
+    /**
+     * @return the estimated cost of comparing the submissions. The number of token pairs that the comparison may need to
+     * consider, which is the product of the token counts.
+     */
+    public long estimatedCost() {
+        return (long) left.getNumberOfTokens() * right.getNumberOfTokens();
+    }
+
     @Override
     public String toString() {
         return "(" + left + " | " + right + ")";
@@ -0,0 +1,57 @@
+package de.jplag.strategy;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+
+/**
+ * Sequence of the submission tuples of a list, which stores the estimated cost of each prefix.
+ */
+final class TupleList implements TupleSequence {
+    private final List<SubmissionTuple> tuples;
+    private final double[] costs; // cost of the tuples before each index, the last entry is the cost of all tuples
+
+    /**
+     * @param tuples are the tuples, which must not be modified while the sequence is in use.
+     */
+    TupleList(List<SubmissionTuple> tuples) {
+        this.tuples = tuples;
+        costs = new double[tuples.size() + 1];
+        for (int i = 0; i < tuples.size(); i++) {
+            costs[i + 1] = costs[i] + tuples.get(i).estimatedCost();
+        }
+    }
+
+    @Override
+    public long size() {
+        return tuples.size();
+    }
+
+    @Override
+    public Iterator<SubmissionTuple> iterator() {
+        return tuples.iterator();
+    }
+
+    @Override
+    public Spliterator<SubmissionTuple> spliterator(long from, long to) {
+        return tuples.subList((int) from, (int) to).spliterator();
+    }
+
+    @Override
+    public double costBefore(long index) {
+        return costs[(int) index];
+    }
+
+    @Override
+    public long indexOfCost(double cost) {
+        int index = Arrays.binarySearch(costs, cost);
+        if (index < 0) {
+            return -index - 2; // the index before the insertion point
+        }
+        while (index + 1 < costs.length && costs[index + 1] == cost) { // tuples without cost
+            index++;
+        }
+        return index;
+    }
+}
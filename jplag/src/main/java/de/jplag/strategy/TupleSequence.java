@@ -0,0 +1,39 @@
+package de.jplag.strategy;
+
+import java.util.Spliterator;
+
+/**
+ * Sequence of submission tuples that knows the estimated cost of each prefix (see
+ * {@link SubmissionTuple#estimatedCost()}), thus it can be split at any index into parts of equal cost for the parallel
+ * comparison.
+ */
+interface TupleSequence extends Iterable<SubmissionTuple> {
+    /**
+     * @return the number of tuples.
+     */
+    long size();
+
+    /**
+     * @param from is the index of the first tuple.
+     * @param to is the index after the last tuple.
+     * @return the tuples of the index range in their order.
+     */
+    Spliterator<SubmissionTuple> spliterator(long from, long to);
+
+    /**
+     * @param index is an index between 0 and the size.
+     * @return the estimated cost of the tuples before the index.
+     */
+    double costBefore(long index);
+
+    /**
+     * @param cost is a cost between 0 and the cost of all tuples.
+     * @return the largest index whose {@link #costBefore(long) preceding tuples} cost at most the given cost.
+     */
+    long indexOfCost(double cost);
+
+    @Override
+    default Spliterator<SubmissionTuple> spliterator() {
+        return spliterator(0, size());
+    }
+}
@@ -0,0 +1,44 @@
+package de.jplag.strategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import de.jplag.ComparisonStatistics;
+import de.jplag.FingerprintIndex;
+import de.jplag.MatchingEngine;
+import de.jplag.Submission;
+import de.jplag.options.JPlagOptions;
+
+/**
+ * Strategy that only compares submissions which share winnowed fingerprints, found via a {@link FingerprintIndex} of
+ * all submissions. With the default of one shared fingerprint, the result equals the result of comparing all pairs,
+ * except for the pairs without any match. Requiring more shared fingerprints avoids more comparisons, but may miss
+ * pairs with few short matches.
+ */
+public class WinnowingComparisonStrategy extends AbstractCandidateComparisonStrategy {
+
+    public WinnowingComparisonStrategy(JPlagOptions options, MatchingEngine matchingEngine, ComparisonStatistics statistics) {
+        super(options, matchingEngine, statistics);
+    }
+
+    @Override
+    protected List<SubmissionTuple> buildCandidateTuples(List<Submission> submissions) {
+        FingerprintIndex index = new FingerprintIndex(submissions, options);
+        int minimumSharedFingerprints = options.getMinimumSharedFingerprints();
+        List<int[]> candidates = IntStream.range(0, submissions.size()).parallel().mapToObj(it -> index.findCandidates(it, minimumSharedFingerprints))
+                .toList();
+
+        List<SubmissionTuple> tuples = new ArrayList<>();
+        for (int i = 0; i < submissions.size(); i++) {
+            Submission first = submissions.get(i);
+            for (int j : candidates.get(i)) {
+                Submission second = submissions.get(j);
+                if (first.isNew() || second.isNew()) {
+                    tuples.add(new SubmissionTuple(first, second));
+                }
+            }
+        }
+        return tuples;
+    }
+}
@@ -0,0 +1,44 @@
+package de.jplag.strategy;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import de.jplag.ComparisonSink;
+import de.jplag.ComparisonSink.Accumulator;
+
+/**
+ * Accumulators of the threads of a pool, one per thread, thus the comparisons of the tasks are collected without
+ * synchronization. They are merged into the sink once all tasks are done.
+ */
+final class WorkerAccumulators {
+    private final ComparisonSink sink;
+    private final Queue<Accumulator> accumulators = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Accumulator> threadAccumulator = ThreadLocal.withInitial(this::createAccumulator);
+
+    WorkerAccumulators(ComparisonSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * @return the accumulator of the current thread.
+     */
+    Accumulator get() {
+        return threadAccumulator.get();
+    }
+
+    /**
+     * Merges the accumulators into the sink. The tasks that used them need to be joined before.
+     */
+    void mergeIntoSink() {
+        Accumulator accumulator;
+        while ((accumulator = accumulators.poll()) != null) {
+            sink.merge(accumulator);
+        }
+    }
+
+    private Accumulator createAccumulator() {
+        Accumulator accumulator = sink.createAccumulator();
+        accumulators.add(accumulator);
+        return accumulator;
+    }
+}
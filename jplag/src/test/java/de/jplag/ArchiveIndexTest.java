@@ -0,0 +1,181 @@
+package de.jplag;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jplag.exceptions.ArchiveIndexException;
+import de.jplag.exceptions.BasecodeException;
+import de.jplag.exceptions.ExitException;
+import de.jplag.java.Language;
+import de.jplag.options.JPlagOptions;
+
+/**
+ * Tests that querying an {@link ArchiveIndex} finds the same matches as comparing the submission with the archive as
+ * old submissions.
+ */
+public class ArchiveIndexTest extends TestBase {
+
+    @TempDir
+    Path indexDirectory;
+
+    @Test
+    public void testQuery(@TempDir Path archive, @TempDir Path query) throws ExitException, IOException {
+        Path source = Path.of(getBasePath("PartialPlagiarism"));
+        for (String name : List.of("B", "C", "D", "E")) {
+            copySubmission(source.resolve(name), archive.resolve(name));
+        }
+        copySubmission(source.resolve("A"), query.resolve("A"));
+
+        try (ArchiveIndex builtIndex = new JPlag(createOptions(archive)).buildArchiveIndex(indexDirectory.toString())) {
+            assertEquals(4, builtIndex.size());
+        }
+
+        JPlag jplag = new JPlag(createOptions(query));
+        JPlagResult result;
+        try (ArchiveIndex index = jplag.loadArchiveIndex(indexDirectory.toString())) {
+            result = jplag.query(index);
+        }
+        JPlagResult expected = runJPlag(List.of(query.toString()), List.of(archive.toString()), it -> {
+        });
+
+        Map<String, JPlagComparison> comparisons = result.getAllComparisons().stream()
+                .collect(Collectors.toMap(ArchiveIndexTest::archivedName, Function.identity()));
+        assertEquals(4, comparisons.size() + result.getStatistics().getAvoidedComparisons());
+        assertFalse(comparisons.isEmpty());
+        for (JPlagComparison expectedComparison : expected.getAllComparisons()) {
+            String name = archivedName(expectedComparison);
+            JPlagComparison comparison = comparisons.get(name);
+            if (comparison == null) {
+                assertEquals(0, expectedComparison.getNumberOfMatchedTokens(), name); // avoided by the candidate selection
+                continue;
+            }
+            assertEquals(expectedComparison.getNumberOfMatchedTokens(), comparison.getNumberOfMatchedTokens(), name);
+            assertEquals(expectedComparison.similarity(), comparison.similarity(), DELTA);
+        }
+    }
+
+    @Test
+    public void testQueryWithSharedCandidates(@TempDir Path archive, @TempDir Path query) throws ExitException, IOException {
+        Path source = Path.of(getBasePath("PartialPlagiarism"));
+        for (String name : List.of("B", "D", "E")) {
+            copySubmission(source.resolve(name), archive.resolve(name));
+        }
+        for (String name : List.of("A", "C")) {
+            copySubmission(source.resolve(name), query.resolve(name));
+        }
+        new JPlag(createOptions(archive)).buildArchiveIndex(indexDirectory.toString()).close();
+
+        JPlagOptions options = createOptions(query);
+        options.setParallelism(2);
+        JPlag jplag = new JPlag(options);
+        JPlagResult result;
+        try (ArchiveIndex index = jplag.loadArchiveIndex(indexDirectory.toString())) {
+            result = jplag.query(index);
+        }
+        JPlagResult expected = runJPlag(List.of(query.toString()), List.of(archive.toString()), it -> {
+        });
+
+        Map<String, JPlagComparison> comparisons = result.getAllComparisons().stream()
+                .collect(Collectors.toMap(ArchiveIndexTest::pairName, Function.identity()));
+        assertEquals(6, comparisons.size() + result.getStatistics().getAvoidedComparisons());
+        for (JPlagComparison expectedComparison : expected.getAllComparisons()) {
+            String name = pairName(expectedComparison);
+            JPlagComparison comparison = comparisons.get(name);
+            if (name.equals("A-C") || comparison == null) {
+                continue; // the queried submissions are not compared with each other, or the pair was avoided
+            }
+            assertEquals(expectedComparison.getNumberOfMatchedTokens(), comparison.getNumberOfMatchedTokens(), name);
+        }
+    }
+
+    @Test
+    public void testOtherMinimumTokenMatch(@TempDir Path archive) throws ExitException, IOException {
+        copySubmission(Path.of(getBasePath("PartialPlagiarism", "A")), archive.resolve("A"));
+        new JPlag(createOptions(archive)).buildArchiveIndex(indexDirectory.toString()).close();
+
+        JPlagOptions options = createOptions(archive);
+        options.setMinimumTokenMatch(5);
+        JPlag jplag = new JPlag(options);
+        assertThrows(ArchiveIndexException.class, () -> jplag.loadArchiveIndex(indexDirectory.toString()));
+    }
+
+    @Test
+    public void testBaseCodeIsRejected() throws ExitException {
+        JPlagOptions options = createOptions(Path.of(getBasePath("basecode")));
+        options.setBaseCodeSubmissionName("base");
+        JPlag jplag = new JPlag(options);
+        assertThrows(BasecodeException.class, () -> jplag.buildArchiveIndex(indexDirectory.toString()));
+    }
+
+    @Test
+    public void testRebuildKeepsLoadedIndex(@TempDir Path archive) throws ExitException, IOException {
+        Path source = Path.of(getBasePath("PartialPlagiarism"));
+        copySubmission(source.resolve("A"), archive.resolve("A"));
+        JPlag jplag = new JPlag(createOptions(archive));
+        jplag.buildArchiveIndex(indexDirectory.toString()).close();
+
+        try (ArchiveIndex loadedIndex = jplag.loadArchiveIndex(indexDirectory.toString())) {
+            int tokens = loadedIndex.loadSubmission(0).getNumberOfTokens();
+            copySubmission(source.resolve("B"), archive.resolve("B"));
+            new JPlag(createOptions(archive)).buildArchiveIndex(indexDirectory.toString()).close();
+
+            assertEquals(1, loadedIndex.size());
+            assertEquals(tokens, loadedIndex.loadSubmission(0).getNumberOfTokens());
+            try (ArchiveIndex rebuiltIndex = jplag.loadArchiveIndex(indexDirectory.toString())) {
+                assertEquals(2, rebuiltIndex.size());
+            }
+        }
+        try (Stream<Path> files = Files.list(indexDirectory)) {
+            assertEquals(2, files.count()); // no temporary files are left
+        }
+    }
+
+    @Test
+    public void testLanguageWithoutFixedTokenTypesIsRejected(@TempDir Path archive) throws ExitException {
+        JPlag jplag = new JPlag(new JPlagOptions(List.of(archive.toString()), List.of(), de.jplag.emf.dynamic.Language.IDENTIFIER));
+        assertThrows(ArchiveIndexException.class, () -> jplag.buildArchiveIndex(indexDirectory.toString()));
+    }
+
+    /**
+     * @return the name of the compared submission that is not A, without the names of its root directories.
+     */
+    private static String archivedName(JPlagComparison comparison) {
+        Submission first = comparison.getFirstSubmission();
+        Submission archived = first.getName().endsWith("A") ? comparison.getSecondSubmission() : first;
+        return Path.of(archived.getName()).getFileName().toString();
+    }
+
+    /**
+     * @return the names of the compared submissions without the names of their root directories, in alphabetical order.
+     */
+    private static String pairName(JPlagComparison comparison) {
+        return Stream.of(comparison.getFirstSubmission(), comparison.getSecondSubmission()).map(it -> Path.of(it.getName()).getFileName().toString())
+                .sorted().collect(Collectors.joining("-"));
+    }
+
+    private static JPlagOptions createOptions(Path rootDirectory) {
+        return new JPlagOptions(List.of(rootDirectory.toString()), List.of(), Language.IDENTIFIER);
+    }
+
+    private static void copySubmission(Path source, Path target) throws IOException {
+        Files.createDirectory(target);
+        try (Stream<Path> files = Files.list(source)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, target.resolve(file.getFileName()));
+            }
+        }
+    }
+}
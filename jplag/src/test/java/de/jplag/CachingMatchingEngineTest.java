@@ -0,0 +1,110 @@
+package de.jplag;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jplag.exceptions.ExitException;
+import de.jplag.options.JPlagOptions;
+import de.jplag.strategy.ComparisonMode;
+
+/**
+ * Tests that the {@link CachingMatchingEngine} restores the same comparisons as the matching engine, and that only the
+ * changed pairs are compared again.
+ */
+public class CachingMatchingEngineTest extends TestBase {
+
+    @TempDir
+    Path cacheDirectory;
+
+    @Test
+    public void testPartialPlagiarism() throws ExitException {
+        assertSameComparisons(List.of(getBasePath("PartialPlagiarism")), it -> {
+        });
+    }
+
+    @Test
+    public void testBaseCode() throws ExitException {
+        assertSameComparisons(List.of(getBasePath("basecode")), it -> it.setBaseCodeSubmissionName("base"));
+    }
+
+    @Test
+    public void testNewSubmission(@TempDir Path submissions) throws ExitException, IOException {
+        Path source = Path.of(getBasePath("PartialPlagiarism"));
+        for (String name : List.of("A", "B", "D")) {
+            copySubmission(source.resolve(name), submissions.resolve(name));
+        }
+        Consumer<JPlagOptions> cached = it -> it.setResultCacheDirectory(cacheDirectory.toString());
+        JPlagResult original = runJPlag(List.of(submissions.toString()), cached);
+        assertEquals(0, original.getStatistics().getCachedComparisons());
+        assertEquals(3, original.getStatistics().getUncachedComparisons());
+
+        copySubmission(source.resolve("E"), submissions.resolve("E"));
+        JPlagResult rerun = runJPlag(List.of(submissions.toString()), cached);
+        assertEquals(3, rerun.getStatistics().getCachedComparisons());
+        assertEquals(3, rerun.getStatistics().getUncachedComparisons()); // only the pairs with the new submission
+    }
+
+    @Test
+    public void testRemovedPairsAreDropped(@TempDir Path submissions) throws ExitException, IOException {
+        Path source = Path.of(getBasePath("PartialPlagiarism"));
+        for (String name : List.of("A", "B", "D")) {
+            copySubmission(source.resolve(name), submissions.resolve(name));
+        }
+        Consumer<JPlagOptions> cached = it -> it.setResultCacheDirectory(cacheDirectory.toString());
+        runJPlag(List.of(submissions.toString()), cached);
+
+        deleteSubmission(submissions.resolve("D"));
+        JPlagResult withoutD = runJPlag(List.of(submissions.toString()), cached);
+        assertEquals(1, withoutD.getStatistics().getCachedComparisons());
+
+        copySubmission(source.resolve("D"), submissions.resolve("D"));
+        JPlagResult withD = runJPlag(List.of(submissions.toString()), cached);
+        assertEquals(1, withD.getStatistics().getCachedComparisons()); // the pairs with D were not saved by the previous run
+        assertEquals(2, withD.getStatistics().getUncachedComparisons());
+    }
+
+    private void assertSameComparisons(List<String> paths, Consumer<JPlagOptions> customization) throws ExitException {
+        JPlagResult expected = runJPlag(paths, customization);
+        Consumer<JPlagOptions> cached = customization.andThen(it -> it.setResultCacheDirectory(cacheDirectory.toString()));
+        JPlagResult filling = runJPlag(paths, cached);
+        JPlagResult loaded = runJPlag(paths, cached.andThen(it -> it.setComparisonMode(ComparisonMode.PARALLEL)));
+
+        assertTrue(filling.getStatistics().getUncachedComparisons() > 0);
+        long comparisons = filling.getStatistics().getCachedComparisons() + filling.getStatistics().getUncachedComparisons();
+        assertEquals(comparisons, loaded.getStatistics().getCachedComparisons()); // identical submissions can hit in the first run
+        assertEquals(0, loaded.getStatistics().getUncachedComparisons());
+        for (JPlagResult actual : List.of(filling, loaded)) {
+            assertEquals(expected.getAllComparisons(), actual.getAllComparisons());
+            assertArrayEquals(expected.getSimilarityDistribution(), actual.getSimilarityDistribution());
+        }
+    }
+
+    private static void copySubmission(Path source, Path target) throws IOException {
+        Files.createDirectory(target);
+        try (Stream<Path> files = Files.list(source)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, target.resolve(file.getFileName()));
+            }
+        }
+    }
+
+    private static void deleteSubmission(Path submission) throws IOException {
+        try (Stream<Path> files = Files.list(submission)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(submission);
+    }
+}
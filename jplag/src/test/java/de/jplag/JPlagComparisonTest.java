@@ -0,0 +1,46 @@
+package de.jplag;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the overlap check of {@link JPlagComparison#addMatch(int, int, int)} against
+ * {@link Match#overlap(int, int, int)}.
+ */
+class JPlagComparisonTest {
+
+    @Test
+    void testOverlappingMatchesAreRejected() {
+        JPlagComparison comparison = new JPlagComparison(null, null);
+        comparison.addMatch(10, 20, 5);
+        comparison.addMatch(14, 40, 3); // overlaps in the first submission
+        comparison.addMatch(40, 24, 3); // overlaps in the second submission
+        comparison.addMatch(15, 25, 5); // adjacent on both sides
+        comparison.addMatch(5, 15, 5); // adjacent on both sides
+        assertEquals(List.of(new Match(10, 20, 5), new Match(15, 25, 5), new Match(5, 15, 5)), comparison.getMatches());
+    }
+
+    @Test
+    void testSameMatchesAsLinearCheck() {
+        Random random = new Random(42);
+        for (int run = 0; run < 100; run++) {
+            JPlagComparison comparison = new JPlagComparison(null, null);
+            List<Match> expected = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                int startOfFirst = random.nextInt(200);
+                int startOfSecond = random.nextInt(200);
+                int length = 1 + random.nextInt(20);
+                if (expected.stream().noneMatch(it -> it.overlap(startOfFirst, startOfSecond, length))) {
+                    expected.add(new Match(startOfFirst, startOfSecond, length));
+                }
+                comparison.addMatch(startOfFirst, startOfSecond, length);
+            }
+            assertEquals(expected, comparison.getMatches());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.jplag;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jplag.exceptions.ExitException;
+
+/**
+ * Tests that the old submissions in the {@link MappedTokenStore} are compared like the ones on the heap.
+ */
+public class MappedTokenStoreTest extends TestBase {
+
+    @TempDir
+    Path storeDirectory;
+
+    @Test
+    public void testOldSubmissionsAreStored() throws ExitException, IOException {
+        List<String> newPaths = List.of(getBasePath("PartialPlagiarism"));
+        List<String> oldPaths = List.of(getBasePath("NoDuplicate"));
+        JPlagResult expected = runJPlag(newPaths, oldPaths, it -> {
+        });
+        JPlagResult actual = runJPlag(newPaths, oldPaths, it -> it.setOldTokenStoreDirectory(storeDirectory.toString()));
+
+        assertEquals(expected.getAllComparisons(), actual.getAllComparisons());
+        assertArrayEquals(expected.getSimilarityDistribution(), actual.getSimilarityDistribution());
+        for (int i = 0; i < expected.getNumberOfSubmissions(); i++) {
+            Submission expectedSubmission = expected.getSubmissions().getSubmissions().get(i);
+            Submission actualSubmission = actual.getSubmissions().getSubmissions().get(i);
+            if (actualSubmission.isNew()) {
+                assertEquals(TokenList.class, actualSubmission.getTokenList().getClass());
+            } else {
+                assertNotEquals(TokenList.class, actualSubmission.getTokenList().getClass());
+                assertTrue(actualSubmission.hasStoredTokens());
+            }
+            assertArrayEquals(expectedSubmission.getTokenList().getTokenTypes(), actualSubmission.getTokenList().getTokenTypes());
+            assertEquals(expectedSubmission.getTokenList().toString(), actualSubmission.getTokenList().toString());
+            assertEquals(expectedSubmission.getTokenAnnotatedSourceCode(), actualSubmission.getTokenAnnotatedSourceCode());
+        }
+
+        try (Stream<Path> files = Files.list(storeDirectory)) {
+            assertEquals(0, files.count()); // the file is deleted after parsing
+        }
+    }
+
+    @Test
+    public void testStoredTokens() throws IOException {
+        TokenList tokens = new TokenList();
+        tokens.addToken(new TestToken(1, "A.java", 1, 1, 5));
+        tokens.addToken(new TestToken(2, "A.java", 2, -1, -1));
+        tokens.addToken(new TestToken(1, "B.java", 7, 3, 1));
+
+        try (MappedTokenStore store = new MappedTokenStore(storeDirectory)) {
+            TokenList stored = store.store(tokens);
+            assertEquals(3, stored.size());
+            assertArrayEquals(new int[] {1, 2, 1}, stored.getTokenTypes());
+            assertSame(stored.getTokenTypes(), stored.getTokenTypes()); // cached unless reclaimed
+            for (int i = 0; i < tokens.size(); i++) {
+                Token expected = tokens.getToken(i);
+                Token actual = stored.getToken(i);
+                assertEquals(expected.getFile(), actual.getFile());
+                assertEquals(expected.getLine(), actual.getLine());
+                assertEquals(expected.getColumn(), actual.getColumn());
+                assertEquals(expected.getLength(), actual.getLength());
+                assertEquals(expected.toString(), actual.toString());
+            }
+            assertEquals(3L * 5 * Integer.BYTES, store.getStoredBytes());
+        }
+    }
+
+    private static final class TestToken extends Token {
+        TestToken(int type, String file, int line, int column, int length) {
+            super(type, file, line, column, length);
+        }
+
+        @Override
+        protected String type2string() {
+            return "TYPE" + type;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package de.jplag;
+
+import static de.jplag.strategy.ComparisonMode.MINHASH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import de.jplag.exceptions.ExitException;
+import de.jplag.strategy.MinHashComparisonStrategy;
+
+/**
+ * Tests the candidate selection of the {@link MinHashComparisonStrategy}.
+ */
+public class MinHashComparisonTest extends TestBase {
+
+    /**
+     * The simple duplicate is too small for the default precision, as its submissions only share one of their twelve
+     * k-grams. With a single row per band and many bands, every pair with any common k-gram is very likely a candidate.
+     */
+    @Test
+    public void testSimpleDuplicate() throws ExitException {
+        JPlagResult result = runJPlag("SimpleDuplicate", it -> {
+            it.setComparisonMode(MINHASH);
+            it.setMinHashBands(200);
+            it.setMinHashRows(1);
+        });
+
+        assertEquals(1, result.getAllComparisons().size());
+        assertEquals(62.07f, result.getAllComparisons().get(0).similarity(), DELTA);
+        assertEquals(0, result.getStatistics().getAvoidedComparisons());
+    }
+
+    /**
+     * The copies of A in the partial plagiarism are found, while the dissimilar pairs are avoided.
+     */
+    @Test
+    public void testPartialPlagiarism() throws ExitException {
+        JPlagResult result = runJPlag("PartialPlagiarism", it -> it.setComparisonMode(MINHASH));
+
+        assertEquals(99.7f, getSelectedPercent(result, "A", "C"), DELTA);
+        assertEquals(77.9f, getSelectedPercent(result, "A", "D"), DELTA);
+        assertEquals(77.9f, getSelectedPercent(result, "C", "D"), DELTA);
+        assertEquals(-1f, getSelectedPercent(result, "A", "E"), DELTA);
+        assertEquals(10, result.getAllComparisons().size() + result.getStatistics().getAvoidedComparisons());
+    }
+
+    /**
+     * With a high recall, the partial copies are found as well.
+     */
+    @Test
+    public void testPartialPlagiarismWithHighRecall() throws ExitException {
+        JPlagResult result = runJPlag("PartialPlagiarism", it -> {
+            it.setComparisonMode(MINHASH);
+            it.setMinHashBands(200);
+            it.setMinHashRows(1);
+        });
+
+        assertEquals(24.6f, getSelectedPercent(result, "A", "B"), DELTA);
+        assertEquals(28.3f, getSelectedPercent(result, "B", "D"), DELTA);
+    }
+
+    private float getSelectedPercent(JPlagResult result, String nameA, String nameB) {
+        return getSelectedComparison(result, nameA, nameB).map(JPlagComparison::similarity).orElse(-1f);
+    }
+
+    private Optional<JPlagComparison> getSelectedComparison(JPlagResult result, String nameA, String nameB) {
+        return result.getAllComparisons().stream().filter(
+                comparison -> comparison.getFirstSubmission().getName().equals(nameA) && comparison.getSecondSubmission().getName().equals(nameB)
+                        || comparison.getFirstSubmission().getName().equals(nameB) && comparison.getSecondSubmission().getName().equals(nameA))
+                .findFirst();
+    }
+}
@@ -3,6 +3,7 @@ package de.jplag;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
 import java.util.Optional;
@@ -87,6 +88,22 @@ class NormalComparisonTest extends TestBase {
         assertEquals(65.3f, biggestMatch.get().minimalSimilarity(), 0.1f);
         assertEquals(12, biggestMatch.get().getMatches().size());
 
+        // The 64-bit hashes of the token sequences do not collide
+        assertEquals(0, result.getStatistics().getFalsePositiveVerifications());
+    }
+
+    /**
+     * Comparisons whose similarity cannot reach the threshold are skipped without changing the result.
+     */
+    @Test
+    void testSimilarityThresholdSkipsComparisons() throws ExitException {
+        JPlagResult result = runJPlag("PartialPlagiarism", it -> it.setSimilarityThreshold(50));
+
+        assertEquals(3, result.getAllComparisons().size());
+        assertEquals(99.7f, getSelectedPercent(result, "A", "C"), 0.1f);
+        assertEquals(77.9f, getSelectedPercent(result, "A", "D"), 0.1f);
+        assertEquals(77.9f, getSelectedPercent(result, "C", "D"), 0.1f);
+        assertTrue(result.getStatistics().getSkippedComparisons() > 0);
     }
 
     // TODO SH: Methods like this should be moved to the API and also should accept wildcards
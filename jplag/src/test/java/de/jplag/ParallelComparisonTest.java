@@ -1,9 +1,13 @@
 package de.jplag;
 
 import static de.jplag.strategy.ComparisonMode.PARALLEL;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
@@ -77,11 +81,92 @@ public class ParallelComparisonTest extends TestBase {
 
     }
 
+    /**
+     * The result does not depend on the number of threads, neither for parsing nor for comparing.
+     */
+    @Test
+    public void testParallelism() throws ExitException {
+        JPlagResult expected = runJPlag("PartialPlagiarism", it -> it.setComparisonMode(PARALLEL));
+        for (int parallelism : new int[] {1, 3}) {
+            JPlagResult result = runJPlag("PartialPlagiarism", it -> {
+                it.setComparisonMode(PARALLEL);
+                it.setParallelism(parallelism);
+            });
+            assertEquals(expected.getAllComparisons().size(), result.getAllComparisons().size());
+            for (JPlagComparison comparison : expected.getAllComparisons()) {
+                String first = comparison.getFirstSubmission().getName();
+                String second = comparison.getSecondSubmission().getName();
+                JPlagComparison actual = getSelectedComparison(result, first, second).orElseThrow();
+                assertEquals(comparison.getFirstSubmission().getNumberOfTokens(), actual.getFirstSubmission().getNumberOfTokens());
+                assertEquals(comparison.getSecondSubmission().getNumberOfTokens(), actual.getSecondSubmission().getNumberOfTokens());
+                assertEquals(comparison.getMatches(), actual.getMatches());
+            }
+        }
+    }
+
+    /**
+     * If only the shown comparisons are retained, these are the most similar ones, while the distributions and the
+     * clustering still consider all comparisons.
+     */
+    @Test
+    public void testRetainOnlyShownComparisons() throws ExitException {
+        JPlagResult expected = runJPlag("PartialPlagiarism", it -> it.setComparisonMode(PARALLEL));
+        JPlagResult result = runJPlag("PartialPlagiarism", it -> {
+            it.setComparisonMode(PARALLEL);
+            it.setMaximumNumberOfComparisons(3);
+            it.setRetainOnlyShownComparisons(true);
+        });
+
+        assertEquals(3, result.getAllComparisons().size());
+        assertEquals(expected.getComparisons(3), result.getAllComparisons());
+        assertArrayEquals(expected.getSimilarityDistribution(), result.getSimilarityDistribution());
+        assertArrayEquals(expected.getMaxSimilarityDistribution(), result.getMaxSimilarityDistribution());
+        assertEquals(getClusterMembers(expected), getClusterMembers(result));
+    }
+
+    /**
+     * If only the metrics are kept, the matches of the retained comparisons are recomputed and thus the same.
+     */
+    @Test
+    public void testMetricsOnly() throws ExitException {
+        JPlagResult expected = runJPlag("PartialPlagiarism", it -> it.setComparisonMode(PARALLEL));
+        for (boolean retainOnlyShownComparisons : new boolean[] {false, true}) {
+            JPlagResult result = runJPlag("PartialPlagiarism", it -> {
+                it.setComparisonMode(PARALLEL);
+                it.setMaximumNumberOfComparisons(4);
+                it.setRetainOnlyShownComparisons(retainOnlyShownComparisons);
+                it.setMetricsOnly(true);
+            });
+            assertEquals(expected.getComparisons(4), result.getComparisons(4));
+            assertEquals(4, result.getAllComparisons().size()); // only the shown comparisons are retained
+            assertArrayEquals(expected.getSimilarityDistribution(), result.getSimilarityDistribution());
+        }
+    }
+
+    /**
+     * The metrics-only mode is disabled if all comparisons are shown, as their matches would be computed twice.
+     */
+    @Test
+    public void testMetricsOnlyWithAllComparisons() throws ExitException {
+        JPlagResult expected = runJPlag("PartialPlagiarism", it -> it.setComparisonMode(PARALLEL));
+        JPlagResult result = runJPlag("PartialPlagiarism", it -> {
+            it.setComparisonMode(PARALLEL);
+            it.setMaximumNumberOfComparisons(-1);
+            it.setMetricsOnly(true);
+        });
+        assertFalse(result.getOptions().isMetricsOnly());
+        assertEquals(expected.getAllComparisons(), result.getAllComparisons());
+    }
+
     // TODO SH: Methods like this should be moved to the API and also should accept wildcards
     private float getSelectedPercent(JPlagResult result, String nameA, String nameB) {
         return getSelectedComparison(result, nameA, nameB).map(JPlagComparison::similarity).orElse(-1f);
     }
 
+    private List<Set<Submission>> getClusterMembers(JPlagResult result) {
+        return result.getClusteringResult().stream().flatMap(it -> it.getClusters().stream()).map(it -> Set.copyOf(it.getMembers())).toList();
+    }
+
     private Optional<JPlagComparison> getSelectedComparison(JPlagResult result, String nameA, String nameB) {
         return result.getAllComparisons().stream().filter(
                 comparison -> comparison.getFirstSubmission().getName().equals(nameA) && comparison.getSecondSubmission().getName().equals(nameB)
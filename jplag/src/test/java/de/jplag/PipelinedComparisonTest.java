@@ -0,0 +1,50 @@
+package de.jplag;
+
+import static de.jplag.strategy.ComparisonMode.PIPELINED;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import de.jplag.exceptions.ExitException;
+import de.jplag.options.JPlagOptions;
+import de.jplag.strategy.PipelinedComparisonStrategy;
+
+/**
+ * Tests that the {@link PipelinedComparisonStrategy} finds the same comparisons as the sequential strategy, regardless
+ * of the order in which the submissions are parsed.
+ */
+public class PipelinedComparisonTest extends TestBase {
+
+    @Test
+    public void testPartialPlagiarism() throws ExitException {
+        for (int parallelism : new int[] {1, 3}) {
+            assertSameComparisons(List.of(getBasePath("PartialPlagiarism")), List.of(), it -> it.setParallelism(parallelism));
+        }
+    }
+
+    @Test
+    public void testBaseCode() throws ExitException {
+        assertSameComparisons(List.of(getBasePath("basecode")), List.of(), it -> it.setBaseCodeSubmissionName("base"));
+    }
+
+    @Test
+    public void testOldSubmissions() throws ExitException {
+        JPlagResult result = assertSameComparisons(List.of(getBasePath("PartialPlagiarism")), List.of(getBasePath("NoDuplicate")), it -> {
+        });
+        assertEquals(10 + 5 * 3, result.getAllComparisons().size()); // the old submissions are not compared with each other
+    }
+
+    private JPlagResult assertSameComparisons(List<String> newPaths, List<String> oldPaths, Consumer<JPlagOptions> customization)
+            throws ExitException {
+        JPlagResult expected = runJPlag(newPaths, oldPaths, customization);
+        JPlagResult actual = runJPlag(newPaths, oldPaths, customization.andThen(it -> it.setComparisonMode(PIPELINED)));
+
+        assertEquals(expected.getAllComparisons(), actual.getAllComparisons());
+        assertArrayEquals(expected.getSimilarityDistribution(), actual.getSimilarityDistribution());
+        return actual;
+    }
+}
@@ -0,0 +1,85 @@
+package de.jplag;
+
+import static de.jplag.MatchingAlgorithm.GST;
+import static de.jplag.MatchingAlgorithm.SUFFIX_ARRAY;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.jplag.exceptions.ExitException;
+
+/**
+ * Tests that the {@link SuffixArrayMatching} finds exactly the same matches as the {@link GreedyStringTiling}.
+ */
+public class SuffixArrayMatchingTest extends TestBase {
+
+    @Test
+    void testSimpleDuplicate() throws ExitException {
+        assertSameMatches("SimpleDuplicate", 9);
+    }
+
+    @Test
+    void testPartialPlagiarism() throws ExitException {
+        assertSameMatches("PartialPlagiarism", 9);
+    }
+
+    @Test
+    void testPartialPlagiarismWithSmallMinimumTokenMatch() throws ExitException {
+        assertSameMatches("PartialPlagiarism", 1);
+    }
+
+    @Test
+    void testNoDuplicateWithSmallMinimumTokenMatch() throws ExitException {
+        assertSameMatches("NoDuplicate", 1);
+    }
+
+    @Test
+    void testBaseCode() throws ExitException {
+        JPlagResult expected = runJPlag("basecode", it -> it.setBaseCodeSubmissionName("base"));
+        JPlagResult actual = runJPlag("basecode", it -> {
+            it.setBaseCodeSubmissionName("base");
+            it.setMatchingAlgorithm(SUFFIX_ARRAY);
+        });
+        assertSameComparisons(expected, actual);
+    }
+
+    @Test
+    void testSuffixAndLcpArray() {
+        int[] sequence = {2, 1, 3, 1, 3, 1, 0};
+        int[] suffixArray = SuffixArrayMatching.buildSuffixArray(sequence);
+        assertArrayEquals(new int[] {6, 5, 3, 1, 0, 4, 2}, suffixArray);
+        assertArrayEquals(new int[] {0, 0, 1, 3, 0, 0, 2}, SuffixArrayMatching.buildLcpArray(sequence, suffixArray));
+    }
+
+    private void assertSameMatches(String sample, int minimumTokenMatch) throws ExitException {
+        JPlagResult expected = runJPlag(sample, it -> {
+            it.setMinimumTokenMatch(minimumTokenMatch);
+            it.setMatchingAlgorithm(GST);
+        });
+        JPlagResult actual = runJPlag(sample, it -> {
+            it.setMinimumTokenMatch(minimumTokenMatch);
+            it.setMatchingAlgorithm(SUFFIX_ARRAY);
+        });
+        assertSameComparisons(expected, actual);
+    }
+
+    private void assertSameComparisons(JPlagResult expected, JPlagResult actual) {
+        List<JPlagComparison> expectedComparisons = sorted(expected.getAllComparisons());
+        List<JPlagComparison> actualComparisons = sorted(actual.getAllComparisons());
+        assertEquals(expectedComparisons.size(), actualComparisons.size());
+        for (int i = 0; i < expectedComparisons.size(); i++) {
+            assertEquals(expectedComparisons.get(i).getFirstSubmission().getName(), actualComparisons.get(i).getFirstSubmission().getName());
+            assertEquals(expectedComparisons.get(i).getSecondSubmission().getName(), actualComparisons.get(i).getSecondSubmission().getName());
+            assertEquals(expectedComparisons.get(i).getMatches(), actualComparisons.get(i).getMatches());
+        }
+    }
+
+    private static List<JPlagComparison> sorted(List<JPlagComparison> comparisons) {
+        return comparisons.stream().sorted(Comparator.comparing(it -> it.getFirstSubmission().getName() + it.getSecondSubmission().getName()))
+                .toList();
+    }
+}
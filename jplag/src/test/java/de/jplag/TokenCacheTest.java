@@ -0,0 +1,93 @@
+package de.jplag;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jplag.exceptions.ExitException;
+
+/**
+ * Tests that the {@link TokenCache} restores the same tokens as the frontend, and that changed files are parsed again.
+ */
+public class TokenCacheTest extends TestBase {
+
+    @TempDir
+    Path cacheDirectory;
+
+    @Test
+    public void testCachedTokensMatchParsedTokens() throws ExitException, IOException {
+        JPlagResult expected = runJPlag("PartialPlagiarism", it -> {
+        });
+        JPlagResult filling = runJPlag("PartialPlagiarism", it -> it.setTokenCacheDirectory(cacheDirectory.toString()));
+        assertEquals(4, countEntries()); // A and C are identical, thus they share an entry
+        JPlagResult cached = runJPlag("PartialPlagiarism", it -> it.setTokenCacheDirectory(cacheDirectory.toString()));
+        assertEquals(4, countEntries());
+
+        for (JPlagResult actual : List.of(filling, cached)) {
+            assertEquals(expected.getAllComparisons(), actual.getAllComparisons());
+            assertArrayEquals(expected.getSimilarityDistribution(), actual.getSimilarityDistribution());
+            for (int i = 0; i < expected.getNumberOfSubmissions(); i++) {
+                assertSameTokens(expected.getSubmissions().getSubmissions().get(i), actual.getSubmissions().getSubmissions().get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testChangedSubmissionIsParsedAgain(@TempDir Path submissions) throws ExitException, IOException {
+        Path source = Path.of(getBasePath("PartialPlagiarism"));
+        for (String name : List.of("A", "B", "D")) {
+            Files.createDirectory(submissions.resolve(name));
+            try (Stream<Path> files = Files.list(source.resolve(name))) {
+                for (Path file : files.toList()) {
+                    Files.copy(file, submissions.resolve(name).resolve(file.getFileName()));
+                }
+            }
+        }
+        JPlagResult original = runJPlag(List.of(submissions.toString()), it -> it.setTokenCacheDirectory(cacheDirectory.toString()));
+
+        Files.writeString(submissions.resolve("B").resolve("Extra.java"), "class Extra {\n    int x;\n}\n");
+        JPlagResult changed = runJPlag(List.of(submissions.toString()), it -> it.setTokenCacheDirectory(cacheDirectory.toString()));
+
+        assertEquals(4, countEntries());
+        assertEquals(numberOfTokens(original, "A"), numberOfTokens(changed, "A"));
+        assertNotEquals(numberOfTokens(original, "B"), numberOfTokens(changed, "B"));
+    }
+
+    private long countEntries() throws IOException {
+        try (Stream<Path> files = Files.walk(cacheDirectory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static int numberOfTokens(JPlagResult result, String submissionName) {
+        return result.getSubmissions().getSubmissions().stream().filter(it -> it.getName().equals(submissionName)).findFirst().orElseThrow()
+                .getNumberOfTokens();
+    }
+
+    private static void assertSameTokens(Submission expected, Submission actual) {
+        assertEquals(expected.getName(), actual.getName());
+        List<Token> expectedTokens = List.copyOf(expected.getTokenList().allTokens());
+        List<Token> actualTokens = List.copyOf(actual.getTokenList().allTokens());
+        assertEquals(expectedTokens.size(), actualTokens.size());
+        for (int i = 0; i < expectedTokens.size(); i++) {
+            Token expectedToken = expectedTokens.get(i);
+            Token actualToken = actualTokens.get(i);
+            assertEquals(expectedToken.getType(), actualToken.getType());
+            assertEquals(expectedToken.getFile(), actualToken.getFile());
+            assertEquals(expectedToken.getLine(), actualToken.getLine());
+            assertEquals(expectedToken.getColumn(), actualToken.getColumn());
+            assertEquals(expectedToken.getLength(), actualToken.getLength());
+            assertEquals(expectedToken.type2string(), actualToken.type2string());
+        }
+        assertEquals(expected.getTokenAnnotatedSourceCode(), actual.getTokenAnnotatedSourceCode());
+    }
+}
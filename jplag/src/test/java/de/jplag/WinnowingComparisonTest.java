@@ -0,0 +1,82 @@
+package de.jplag;
+
+import static de.jplag.strategy.ComparisonMode.WINNOWING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import de.jplag.exceptions.ExitException;
+import de.jplag.options.JPlagOptions;
+import de.jplag.strategy.WinnowingComparisonStrategy;
+
+/**
+ * Tests that the {@link WinnowingComparisonStrategy} only avoids comparisons without matches.
+ */
+public class WinnowingComparisonTest extends TestBase {
+
+    @Test
+    public void testPartialPlagiarism() throws ExitException {
+        JPlagResult result = assertSameMatchingComparisons("PartialPlagiarism", it -> {
+        });
+        assertEquals(4, result.getStatistics().getAvoidedComparisons()); // all comparisons with E
+    }
+
+    @Test
+    public void testPartialPlagiarismWithSmallMinimumTokenMatch() throws ExitException {
+        assertSameMatchingComparisons("PartialPlagiarism", it -> it.setMinimumTokenMatch(2));
+    }
+
+    @Test
+    public void testBaseCode() throws ExitException {
+        assertSameMatchingComparisons("basecode", it -> it.setBaseCodeSubmissionName("base"));
+    }
+
+    @Test
+    public void testMinimumSharedFingerprints() throws ExitException {
+        JPlagResult result = runJPlag("PartialPlagiarism", it -> {
+            it.setComparisonMode(WINNOWING);
+            it.setMinimumSharedFingerprints(100);
+        });
+        assertEquals(99.7f, getSimilarity(result, "A", "C"), DELTA);
+        assertEquals(-1f, getSimilarity(result, "A", "B"), DELTA);
+        assertEquals(10, result.getAllComparisons().size() + result.getStatistics().getAvoidedComparisons());
+    }
+
+    /**
+     * Asserts that all comparisons with matches are equal to the comparisons of all pairs.
+     * @return the result of the winnowing comparison.
+     */
+    private JPlagResult assertSameMatchingComparisons(String sample, Consumer<JPlagOptions> customization) throws ExitException {
+        JPlagResult expected = runJPlag(sample, customization);
+        JPlagResult actual = runJPlag(sample, customization.andThen(it -> it.setComparisonMode(WINNOWING)));
+
+        List<JPlagComparison> expectedComparisons = sorted(expected.getAllComparisons().stream().filter(it -> !it.getMatches().isEmpty()).toList());
+        List<JPlagComparison> actualComparisons = sorted(actual.getAllComparisons().stream().filter(it -> !it.getMatches().isEmpty()).toList());
+        assertEquals(expectedComparisons.size(), actualComparisons.size());
+        for (int i = 0; i < expectedComparisons.size(); i++) {
+            assertEquals(expectedComparisons.get(i).getFirstSubmission().getName(), actualComparisons.get(i).getFirstSubmission().getName());
+            assertEquals(expectedComparisons.get(i).getSecondSubmission().getName(), actualComparisons.get(i).getSecondSubmission().getName());
+            assertEquals(expectedComparisons.get(i).getMatches(), actualComparisons.get(i).getMatches());
+        }
+        assertEquals(expected.getAllComparisons().size(), actual.getAllComparisons().size() + actual.getStatistics().getAvoidedComparisons());
+        assertTrue(actual.getStatistics().getAvoidedComparisons() <= expected.getAllComparisons().size() - expectedComparisons.size());
+        return actual;
+    }
+
+    private static float getSimilarity(JPlagResult result, String nameA, String nameB) {
+        return result.getAllComparisons().stream()
+                .filter(it -> it.getFirstSubmission().getName().equals(nameA) && it.getSecondSubmission().getName().equals(nameB)
+                        || it.getFirstSubmission().getName().equals(nameB) && it.getSecondSubmission().getName().equals(nameA))
+                .findFirst().map(JPlagComparison::similarity).orElse(-1f);
+    }
+
+    private static List<JPlagComparison> sorted(List<JPlagComparison> comparisons) {
+        return comparisons.stream().sorted(Comparator.comparing(it -> it.getFirstSubmission().getName() + it.getSecondSubmission().getName()))
+                .toList();
+    }
+}
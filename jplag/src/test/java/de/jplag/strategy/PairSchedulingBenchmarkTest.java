@@ -0,0 +1,114 @@
+package de.jplag.strategy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.jplag.ComparisonSink;
+import de.jplag.ComparisonStatistics;
+import de.jplag.GreedyStringTiling;
+import de.jplag.JPlag;
+import de.jplag.SubmissionSet;
+import de.jplag.SubmissionSetBuilder;
+import de.jplag.exceptions.ExitException;
+import de.jplag.java.Language;
+import de.jplag.options.JPlagOptions;
+
+/**
+ * Compares the throughput of the parallel comparison when the submission pairs are scheduled in random order (as the
+ * parallel strategy did originally) and in cache-sized blocks. This benchmark is not intended to be used automatically
+ * but rather manually, as its result depends on the machine.
+ */
+class PairSchedulingBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(PairSchedulingBenchmarkTest.class);
+
+    private static final int SUBMISSIONS = 200;
+    private static final int METHODS_PER_SUBMISSION = 60;
+    private static final int RUNS = 3;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @Disabled
+    void compareShuffledAndBlockedScheduling() throws IOException, ExitException {
+        createSubmissions(new Random(42));
+        JPlagOptions options = new JPlagOptions(List.of(directory.toString()), List.of(), Language.IDENTIFIER);
+        new JPlag(options); // initializes the language of the options
+        SubmissionSet submissionSet = new SubmissionSetBuilder(options.getLanguage(), options, Set.of()).buildSubmissionSet();
+        ComparisonStatistics statistics = new ComparisonStatistics();
+        GreedyStringTiling matchingEngine = new GreedyStringTiling(options, statistics);
+        matchingEngine.createIndices(submissionSet);
+        ParallelComparisonStrategy strategy = new ParallelComparisonStrategy(options, matchingEngine, statistics);
+
+        List<SubmissionTuple> shuffled = new ArrayList<>();
+        AbstractComparisonStrategy.buildComparisonTuples(submissionSet.getSubmissions()).forEach(shuffled::add);
+        Collections.shuffle(shuffled, new Random(42));
+        TupleSequence blocked = AbstractComparisonStrategy.buildBlockedComparisonTuples(submissionSet.getSubmissions());
+        logger.info("Block size: {}", AbstractComparisonStrategy.blockSizeFor(submissionSet.getSubmissions()));
+
+        for (int run = 0; run < RUNS; run++) {
+            long shuffledTime = measure(strategy, options, new TupleList(shuffled), shuffled.size());
+            long blockedTime = measure(strategy, options, blocked, shuffled.size());
+            logger.info(String.format("Run %d: shuffled %.0f pairs/s, blocked %.0f pairs/s", run, throughput(shuffled.size(), shuffledTime),
+                    throughput(shuffled.size(), blockedTime)));
+        }
+    }
+
+    private static long measure(ParallelComparisonStrategy strategy, JPlagOptions options, TupleSequence tuples, int expectedComparisons) {
+        ComparisonSink sink = new ComparisonSink(options);
+        long start = System.nanoTime();
+        strategy.compareInParallel(tuples, false, sink);
+        long duration = System.nanoTime() - start;
+        assertEquals(expectedComparisons, sink.getComparisons().size());
+        return duration;
+    }
+
+    private static double throughput(int pairs, long nanos) {
+        return pairs * 1e9 / nanos;
+    }
+
+    /**
+     * Creates submissions that consist of randomly chosen methods of a common pool of templates, thus they share many
+     * fragments of different lengths.
+     */
+    private void createSubmissions(Random random) throws IOException {
+        for (int i = 0; i < SUBMISSIONS; i++) {
+            StringBuilder code = new StringBuilder("public class Submission" + i + " {\n");
+            for (int method = 0; method < METHODS_PER_SUBMISSION; method++) {
+                code.append(createMethod(random.nextInt(200), "m" + method, random));
+            }
+            code.append("}\n");
+            Path submission = Files.createDirectory(directory.resolve("S" + i));
+            Files.writeString(submission.resolve("Submission" + i + ".java"), code);
+        }
+    }
+
+    private static String createMethod(int template, String name, Random random) {
+        Random shape = new Random(template); // the same template always has the same structure
+        StringBuilder method = new StringBuilder("    int " + name + "(int a, int b) {\n        int x = a;\n");
+        int statements = 4 + shape.nextInt(6);
+        for (int statement = 0; statement < statements; statement++) {
+            switch (shape.nextInt(4)) {
+                case 0 -> method.append("        x = x + b * " + random.nextInt(10) + ";\n");
+                case 1 -> method.append("        if (x > b) {\n            x = x - a;\n        }\n");
+                case 2 -> method.append("        for (int i = 0; i < b; i++) {\n            x += i;\n        }\n");
+                default -> method.append("        while (x < a) {\n            x = x * 2 + 1;\n        }\n");
+            }
+        }
+        return method.append("        return x;\n    }\n").toString();
+    }
+}
@@ -0,0 +1,216 @@
+package de.jplag.strategy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+
+import org.junit.jupiter.api.Test;
+
+import de.jplag.Submission;
+import de.jplag.Token;
+import de.jplag.TokenConstants;
+import de.jplag.TokenList;
+
+/**
+ * Tests that the lazy {@link SubmissionPairs} create the same tuples as iterating over all pairs, either directly,
+ * block by block, or the costliest first.
+ */
+class SubmissionPairsTest {
+
+    @Test
+    void testSameTuplesAsNestedLoops() {
+        Random random = new Random(42);
+        for (int run = 0; run < 50; run++) {
+            List<Submission> submissions = createSubmissions(random.nextInt(20), random);
+            List<SubmissionTuple> expected = allPairs(submissions);
+            SubmissionPairs pairs = new SubmissionPairs(submissions);
+
+            List<SubmissionTuple> actual = new ArrayList<>();
+            pairs.forEach(actual::add);
+            assertEquals(expected, actual);
+            assertEquals(expected.size(), pairs.size());
+        }
+    }
+
+    @Test
+    void testBlockedOrder() {
+        Random random = new Random(3);
+        for (int run = 0; run < 50; run++) {
+            List<Submission> submissions = createSubmissions(random.nextInt(25), random);
+            int blockSize = 1 + random.nextInt(6);
+            List<SubmissionTuple> expected = blockedPairs(submissions, blockSize);
+            SubmissionPairs pairs = new SubmissionPairs(submissions, blockSize, false);
+
+            List<SubmissionTuple> actual = new ArrayList<>();
+            pairs.forEach(actual::add);
+            assertEquals(expected, actual);
+            assertEquals(expected.size(), pairs.size());
+            assertEquals(Set.copyOf(allPairs(submissions)), Set.copyOf(actual));
+        }
+    }
+
+    @Test
+    void testBlockedSplitting() {
+        Random random = new Random(11);
+        List<Submission> submissions = createSubmissions(40, random);
+        for (int blockSize = 1; blockSize <= 41; blockSize += 4) {
+            List<SubmissionTuple> actual = new ArrayList<>();
+            collectSplit(new SubmissionPairs(submissions, blockSize, false).spliterator(), actual, random);
+            assertEquals(blockedPairs(submissions, blockSize), actual);
+        }
+    }
+
+    @Test
+    void testCostliestFirst() {
+        Random random = new Random(5);
+        List<Submission> submissions = createSubmissions(30, random);
+        List<SubmissionTuple> actual = new ArrayList<>();
+        new SubmissionPairs(submissions, 1, true).forEach(actual::add);
+
+        // with single submission blocks, the order is exactly by cost, and the tuples keep their orientation:
+        assertEquals(Set.copyOf(allPairs(submissions)), Set.copyOf(actual));
+        assertEquals(allPairs(submissions).size(), actual.size());
+        for (int i = 1; i < actual.size(); i++) {
+            assertTrue(actual.get(i - 1).estimatedCost() >= actual.get(i).estimatedCost());
+        }
+    }
+
+    @Test
+    void testCostliestBlocksFirst() {
+        Random random = new Random(9);
+        List<Submission> submissions = createSubmissions(40, random);
+        for (int blockSize = 1; blockSize <= 41; blockSize += 4) {
+            List<SubmissionTuple> actual = new ArrayList<>();
+            collectSplit(new SubmissionPairs(submissions, blockSize, true).spliterator(), actual, random);
+            assertEquals(Set.copyOf(allPairs(submissions)), Set.copyOf(actual));
+            assertEquals(allPairs(submissions).size(), actual.size());
+        }
+    }
+
+    @Test
+    void testSplitting() {
+        Random random = new Random(7);
+        List<Submission> submissions = createSubmissions(30, random);
+        List<SubmissionTuple> expected = allPairs(submissions);
+
+        List<SubmissionTuple> actual = new ArrayList<>();
+        collectSplit(new SubmissionPairs(submissions).spliterator(), actual, random);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testCosts() {
+        Random random = new Random(13);
+        for (int run = 0; run < 30; run++) {
+            List<Submission> submissions = createSubmissions(random.nextInt(30), random);
+            SubmissionPairs pairs = new SubmissionPairs(submissions, 1 + random.nextInt(8), random.nextBoolean());
+            List<SubmissionTuple> tuples = new ArrayList<>();
+            pairs.forEach(tuples::add);
+            assertSameCosts(tuples, pairs);
+            assertSameCosts(tuples, new TupleList(tuples));
+        }
+    }
+
+    @Test
+    void testNoPairs() {
+        Random random = new Random(1);
+        assertEquals(0, new SubmissionPairs(List.of()).size());
+        assertEquals(0, new SubmissionPairs(createSubmissions(1, random)).size());
+        assertNull(new SubmissionPairs(List.of()).spliterator().trySplit());
+    }
+
+    /**
+     * Checks the costs of a sequence against the costs of its tuples.
+     */
+    private static void assertSameCosts(List<SubmissionTuple> tuples, TupleSequence sequence) {
+        double[] costs = new double[tuples.size() + 1];
+        for (int i = 0; i < tuples.size(); i++) {
+            costs[i + 1] = costs[i] + tuples.get(i).estimatedCost();
+        }
+        for (int i = 0; i <= tuples.size(); i++) {
+            assertEquals(costs[i], sequence.costBefore(i));
+            for (double cost : new double[] {costs[i], costs[i] + 0.5}) {
+                int expected = i;
+                while (expected < tuples.size() && costs[expected + 1] <= cost) {
+                    expected++;
+                }
+                assertEquals(expected, sequence.indexOfCost(cost));
+            }
+        }
+    }
+
+    private static void collectSplit(Spliterator<SubmissionTuple> spliterator, List<SubmissionTuple> result, Random random) {
+        long size = spliterator.estimateSize();
+        Spliterator<SubmissionTuple> prefix = random.nextBoolean() ? spliterator.trySplit() : null;
+        if (prefix == null) {
+            spliterator.forEachRemaining(result::add);
+        } else {
+            assertEquals(size, prefix.estimateSize() + spliterator.estimateSize());
+            collectSplit(prefix, result, random);
+            collectSplit(spliterator, result, random);
+        }
+    }
+
+    private static List<Submission> createSubmissions(int count, Random random) {
+        List<Submission> submissions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Submission submission = new Submission("S" + i, new File("S" + i), random.nextInt(3) > 0, List.of(), null);
+            if (random.nextInt(5) > 0) { // some submissions are invalid
+                submission.setTokenList(createTokens(random.nextInt(50)));
+            }
+            submissions.add(submission);
+        }
+        return submissions;
+    }
+
+    private static TokenList createTokens(int count) {
+        TokenList tokens = new TokenList();
+        for (int i = 0; i < count; i++) {
+            tokens.addToken(new Token(TokenConstants.SEPARATOR_TOKEN, "File", i) {
+                @Override
+                protected String type2string() {
+                    return "SEPARATOR";
+                }
+            });
+        }
+        return tokens;
+    }
+
+    private static List<SubmissionTuple> allPairs(List<Submission> submissions) {
+        List<SubmissionTuple> tuples = new ArrayList<>();
+        for (int i = 0; i < submissions.size(); i++) {
+            for (int j = i + 1; j < submissions.size(); j++) {
+                Submission first = submissions.get(i);
+                Submission second = submissions.get(j);
+                if (first.getTokenList() != null && second.getTokenList() != null && (first.isNew() || second.isNew())) {
+                    tuples.add(new SubmissionTuple(first, second));
+                }
+            }
+        }
+        return tuples;
+    }
+
+    private static List<SubmissionTuple> blockedPairs(List<Submission> submissions, int blockSize) {
+        List<Submission> valid = submissions.stream().filter(it -> it.getTokenList() != null).toList();
+        List<SubmissionTuple> tuples = new ArrayList<>();
+        for (int firstBlock = 0; firstBlock < valid.size(); firstBlock += blockSize) {
+            for (int secondBlock = firstBlock; secondBlock < valid.size(); secondBlock += blockSize) {
+                for (int i = firstBlock; i < Math.min(firstBlock + blockSize, valid.size()); i++) {
+                    for (int j = Math.max(secondBlock, i + 1); j < Math.min(secondBlock + blockSize, valid.size()); j++) {
+                        if (valid.get(i).isNew() || valid.get(j).isNew()) {
+                            tuples.add(new SubmissionTuple(valid.get(i), valid.get(j)));
+                        }
+                    }
+                }
+            }
+        }
+        return tuples;
+    }
+}